@@ -0,0 +1,75 @@
+package com.example.productmanagement.benchmark;
+
+import com.example.productmanagement.ProductManagementApplication;
+import com.example.productmanagement.controller.ExportController;
+import com.example.productmanagement.service.ProductService;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Khởi động ứng dụng (không có web server) trên H2 dạng file trong target/benchmark-db,
+ * mỗi kích thước danh mục một database. Dữ liệu do CatalogueLoader của ứng dụng nạp
+ * (catalogue.generate.*) trước ApplicationReadyEvent, nên search index và thống kê trong
+ * bộ nhớ được dựng trên đúng tập dữ liệu.
+ */
+@State(Scope.Benchmark)
+public class CatalogueState {
+
+    private static final long SEED = 42L;
+
+    @Param({ "10000", "100000", "1000000" })
+    public int catalogueSize;
+
+    ConfigurableApplicationContext context;
+    ProductService productService;
+    ExportController exportController;
+    long minId;
+    long maxId;
+
+    @Setup(Level.Trial)
+    public void start() {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("spring.main.banner-mode", "off");
+        properties.put("spring.datasource.url", "jdbc:h2:file:./target/benchmark-db/catalogue-" + catalogueSize
+                + ";DB_CLOSE_ON_EXIT=FALSE");
+        properties.put("spring.datasource.driver-class-name", "org.h2.Driver");
+        properties.put("spring.datasource.username", "sa");
+        properties.put("spring.datasource.password", "");
+        properties.put("spring.jpa.properties.hibernate.dialect", "org.hibernate.dialect.H2Dialect");
+        properties.put("spring.jpa.hibernate.ddl-auto", "update");
+        properties.put("spring.jpa.show-sql", "false");
+        properties.put("spring.jpa.properties.hibernate.format_sql", "false");
+        properties.put("logging.level.root", "WARN");
+        properties.put("logging.level.com.example.productmanagement", "WARN");
+        properties.put("catalogue.generate.size", catalogueSize);
+        properties.put("catalogue.generate.seed", SEED);
+        properties.put("catalogue.generate.replace", true);
+
+        context = new SpringApplicationBuilder(ProductManagementApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(properties)
+                .run();
+        productService = context.getBean(ProductService.class);
+        exportController = context.getBean(ExportController.class);
+
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        minId = jdbcTemplate.queryForObject("SELECT MIN(id) FROM products", Long.class);
+        maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM products", Long.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+}
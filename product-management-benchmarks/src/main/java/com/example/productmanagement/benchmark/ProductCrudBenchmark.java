@@ -0,0 +1,41 @@
+package com.example.productmanagement.benchmark;
+
+import com.example.productmanagement.entity.Product;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Thao tác trên một sản phẩm: đọc theo id (qua cache) và vòng đời tạo - sửa - xóa
+ * (giữ nguyên kích thước danh mục giữa các lần gọi).
+ */
+@Fork(1)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class ProductCrudBenchmark {
+
+    private static final AtomicLong CODE_SEQUENCE = new AtomicLong(900_000_000L);
+
+    @Benchmark
+    public Optional<Product> getById(CatalogueState state) {
+        long id = ThreadLocalRandom.current().nextLong(state.minId, state.maxId + 1);
+        return state.productService.getProductById(id);
+    }
+
+    @Benchmark
+    public Product createUpdateDelete(CatalogueState state) {
+        Product product = new Product("P" + CODE_SEQUENCE.incrementAndGet(), "benchmark product",
+                BigDecimal.valueOf(19.99), 10, "Benchmark", "created by ProductCrudBenchmark");
+        Product saved = state.productService.saveProduct(product);
+        saved.setPrice(BigDecimal.valueOf(24.99));
+        saved = state.productService.saveProduct(saved);
+        state.productService.deleteProduct(saved.getId());
+        return saved;
+    }
+}
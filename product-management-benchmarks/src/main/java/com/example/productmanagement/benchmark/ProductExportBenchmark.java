@@ -0,0 +1,64 @@
+package com.example.productmanagement.benchmark;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Export Excel toàn bộ danh mục. Mỗi lần gọi mất từ vài trăm ms đến vài chục giây,
+ * nên đo từng lần (SingleShotTime) với ít vòng lặp.
+ */
+@Fork(1)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+public class ProductExportBenchmark {
+
+    @Benchmark
+    public long exportExcel(CatalogueState state) throws IOException {
+        DiscardingResponse response = new DiscardingResponse();
+        state.exportController.exportToExcel(response);
+        return response.written;
+    }
+
+    // Response bỏ qua nội dung (chỉ đếm byte) để không đo thêm chi phí giữ file trong bộ nhớ
+    static class DiscardingResponse extends MockHttpServletResponse {
+
+        long written;
+
+        @Override
+        public ServletOutputStream getOutputStream() {
+            return new ServletOutputStream() {
+                @Override
+                public void write(int b) {
+                    written++;
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) {
+                    written += len;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setWriteListener(WriteListener listener) {
+                }
+            };
+        }
+    }
+}
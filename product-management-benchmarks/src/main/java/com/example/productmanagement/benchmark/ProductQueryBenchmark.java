@@ -0,0 +1,55 @@
+package com.example.productmanagement.benchmark;
+
+import com.example.productmanagement.dto.DashboardStatistics;
+import com.example.productmanagement.dto.ProductSummary;
+import com.example.productmanagement.service.CatalogueGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Các truy vấn của trang danh sách, tìm kiếm và Dashboard.
+ */
+@Fork(1)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class ProductQueryBenchmark {
+
+    @Benchmark
+    public Page<ProductSummary> listFirstPage(CatalogueState state) {
+        return state.productService.findAll(PageRequest.of(0, 10, Sort.by("id")));
+    }
+
+    @Benchmark
+    public Page<ProductSummary> listByPrice(CatalogueState state) {
+        int page = ThreadLocalRandom.current().nextInt(100);
+        return state.productService.findAll(PageRequest.of(page, 10, Sort.by(Sort.Direction.DESC, "price")));
+    }
+
+    @Benchmark
+    public Page<ProductSummary> keywordSearch(CatalogueState state) {
+        String keyword = CatalogueGenerator.NOUNS[ThreadLocalRandom.current()
+                .nextInt(CatalogueGenerator.NOUNS.length)];
+        return state.productService.searchProducts(keyword, PageRequest.of(0, 10));
+    }
+
+    @Benchmark
+    public Page<ProductSummary> advancedSearch(CatalogueState state) {
+        String category = CatalogueGenerator.CATEGORIES[ThreadLocalRandom.current()
+                .nextInt(CatalogueGenerator.CATEGORIES.length)];
+        return state.productService.advancedSearchProducts(null, category, BigDecimal.valueOf(100),
+                BigDecimal.valueOf(300), PageRequest.of(0, 10, Sort.by("price")));
+    }
+
+    @Benchmark
+    public DashboardStatistics dashboardStatistics(CatalogueState state) {
+        return state.productService.getDashboardStatistics();
+    }
+}
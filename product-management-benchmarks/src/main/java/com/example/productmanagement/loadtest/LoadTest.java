@@ -0,0 +1,253 @@
+package com.example.productmanagement.loadtest;
+
+import com.example.productmanagement.service.CatalogueGenerator;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/**
+ * Phát tải hỗn hợp (closed loop) vào ứng dụng đang chạy và ghi báo cáo độ trễ / throughput
+ * theo từng loại request (report.md để đọc và diff giữa các bản phát hành, report.json để xử lý tiếp).
+ *
+ * Chuỗi request của mỗi worker xác định theo seed; tham số dạng key=value:
+ * baseUrl, catalogueSize, concurrency, warmup (giây), duration (giây), seed, out (thư mục báo cáo).
+ * Thường được chạy qua product-management/load-test/run-load-test.sh.
+ */
+public final class LoadTest {
+
+    private record Operation(String name, int weight, Function<SplittableRandom, String> path) {
+    }
+
+    // Số liệu của một loại request trên một worker (gộp lại khi kết thúc)
+    private static final class Recorder {
+        long[] latencies = new long[1024]; // micro giây
+        int count;
+        long errors;
+        long bytes;
+
+        void record(long micros, long responseBytes, boolean error) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = micros;
+            bytes += responseBytes;
+            if (error) {
+                errors++;
+            }
+        }
+
+        void addAll(Recorder other) {
+            for (int i = 0; i < other.count; i++) {
+                record(other.latencies[i], 0, false);
+            }
+            bytes += other.bytes;
+            errors += other.errors;
+        }
+    }
+
+    private final String baseUrl;
+    private final int concurrency;
+    private final Duration warmup;
+    private final Duration duration;
+    private final long seed;
+    private final Path out;
+    private final List<Operation> operations;
+    private final int totalWeight;
+    private final HttpClient client;
+
+    private LoadTest(Map<String, String> args) {
+        this.baseUrl = args.getOrDefault("baseUrl", "http://localhost:8080");
+        int catalogueSize = Integer.parseInt(args.getOrDefault("catalogueSize", "50000"));
+        this.concurrency = Integer.parseInt(args.getOrDefault("concurrency", "32"));
+        this.warmup = Duration.ofSeconds(Long.parseLong(args.getOrDefault("warmup", "30")));
+        this.duration = Duration.ofSeconds(Long.parseLong(args.getOrDefault("duration", "120")));
+        this.seed = Long.parseLong(args.getOrDefault("seed", "42"));
+        this.out = Paths.get(args.getOrDefault("out", "target/load-test"));
+
+        String[] categories = CatalogueGenerator.CATEGORIES;
+        String[] keywords = CatalogueGenerator.NOUNS;
+        this.operations = List.of(
+                new Operation("products-list", 30, r -> "/products?page=" + r.nextInt(50) + "&size=10"),
+                new Operation("products-category", 10, r -> "/products?category="
+                        + encode(categories[r.nextInt(categories.length)]) + "&page=" + r.nextInt(5)),
+                new Operation("products-search", 20, r -> "/products/search?keyword="
+                        + encode(keywords[r.nextInt(keywords.length)])),
+                new Operation("dashboard", 5, r -> "/dashboard"),
+                new Operation("api-product", 30, r -> "/api/products/" + (1 + r.nextInt(catalogueSize))),
+                new Operation("api-products", 1, r -> "/api/products"),
+                new Operation("export-excel", 1, r -> "/export/excel"));
+        this.totalWeight = operations.stream().mapToInt(Operation::weight).sum();
+        this.client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq > 0) {
+                options.put(arg.substring(0, eq), arg.substring(eq + 1));
+            }
+        }
+        new LoadTest(options).run();
+    }
+
+    private void run() throws Exception {
+        System.out.printf("Warm-up %ds, then %ds with %d concurrent clients against %s%n",
+                warmup.toSeconds(), duration.toSeconds(), concurrency, baseUrl);
+        phase(warmup, seed - 1);
+        long start = System.nanoTime();
+        Map<String, Recorder> results = phase(duration, seed);
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+
+        Files.createDirectories(out);
+        String markdown = markdown(results, elapsedSeconds);
+        Files.writeString(out.resolve("report.md"), markdown);
+        Files.writeString(out.resolve("report.json"), json(results, elapsedSeconds));
+        System.out.print(markdown);
+    }
+
+    private Map<String, Recorder> phase(Duration length, long phaseSeed) throws Exception {
+        long deadline = System.nanoTime() + length.toNanos();
+        SplittableRandom root = new SplittableRandom(phaseSeed);
+        List<Future<Map<String, Recorder>>> workers = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < concurrency; i++) {
+                SplittableRandom random = root.split();
+                workers.add(executor.submit(() -> work(random, deadline)));
+            }
+        }
+        Map<String, Recorder> merged = new TreeMap<>();
+        for (Future<Map<String, Recorder>> worker : workers) {
+            worker.get().forEach((name, recorder) -> merged.computeIfAbsent(name, key -> new Recorder())
+                    .addAll(recorder));
+        }
+        return merged;
+    }
+
+    private Map<String, Recorder> work(SplittableRandom random, long deadline) {
+        Map<String, Recorder> recorders = new HashMap<>();
+        while (System.nanoTime() < deadline) {
+            Operation operation = pick(random);
+            HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + operation.path().apply(random)))
+                    .timeout(Duration.ofSeconds(120))
+                    .GET()
+                    .build();
+            long started = System.nanoTime();
+            long bytes = 0;
+            boolean error;
+            try {
+                HttpResponse<InputStream> response = client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+                try (InputStream body = response.body()) {
+                    bytes = body.transferTo(OutputStream.nullOutputStream());
+                }
+                error = response.statusCode() >= 400;
+            } catch (IOException e) {
+                error = true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            recorders.computeIfAbsent(operation.name(), key -> new Recorder())
+                    .record((System.nanoTime() - started) / 1_000, bytes, error);
+        }
+        return recorders;
+    }
+
+    private Operation pick(SplittableRandom random) {
+        int value = random.nextInt(totalWeight);
+        for (Operation operation : operations) {
+            value -= operation.weight();
+            if (value < 0) {
+                return operation;
+            }
+        }
+        return operations.get(operations.size() - 1);
+    }
+
+    private static double percentile(long[] sorted, int count, double p) {
+        if (count == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(p * count) - 1;
+        return sorted[Math.max(0, Math.min(count - 1, index))] / 1000.0;
+    }
+
+    private String markdown(Map<String, Recorder> results, double elapsedSeconds) {
+        StringBuilder md = new StringBuilder();
+        md.append("# Load test report\n\n");
+        md.append(String.format(Locale.ROOT, "base: %s, clients: %d, duration: %.0fs, seed: %d%n%n",
+                baseUrl, concurrency, elapsedSeconds, seed));
+        md.append("| request | count | req/s | errors | p50 ms | p90 ms | p99 ms | max ms | avg KiB |\n");
+        md.append("| :--- | ---: | ---: | ---: | ---: | ---: | ---: | ---: | ---: |\n");
+        long total = 0;
+        long totalErrors = 0;
+        for (Map.Entry<String, Recorder> entry : results.entrySet()) {
+            Recorder r = entry.getValue();
+            long[] sorted = Arrays.copyOf(r.latencies, r.count);
+            Arrays.sort(sorted);
+            md.append(String.format(Locale.ROOT, "| %s | %d | %.1f | %d | %.1f | %.1f | %.1f | %.1f | %.1f |%n",
+                    entry.getKey(), r.count, r.count / elapsedSeconds, r.errors,
+                    percentile(sorted, r.count, 0.50), percentile(sorted, r.count, 0.90),
+                    percentile(sorted, r.count, 0.99), percentile(sorted, r.count, 1.0),
+                    r.count == 0 ? 0 : r.bytes / 1024.0 / r.count));
+            total += r.count;
+            totalErrors += r.errors;
+        }
+        md.append(String.format(Locale.ROOT, "%n**total:** %d requests, %.1f req/s, %d errors%n",
+                total, total / elapsedSeconds, totalErrors));
+        return md.toString();
+    }
+
+    private String json(Map<String, Recorder> results, double elapsedSeconds) {
+        StringBuilder json = new StringBuilder();
+        json.append(String.format(Locale.ROOT,
+                "{\"baseUrl\":\"%s\",\"clients\":%d,\"durationSeconds\":%.1f,\"seed\":%d,\"requests\":{",
+                baseUrl, concurrency, elapsedSeconds, seed));
+        boolean first = true;
+        for (Map.Entry<String, Recorder> entry : results.entrySet()) {
+            Recorder r = entry.getValue();
+            long[] sorted = Arrays.copyOf(r.latencies, r.count);
+            Arrays.sort(sorted);
+            json.append(first ? "" : ",");
+            json.append(String.format(Locale.ROOT,
+                    "\"%s\":{\"count\":%d,\"throughput\":%.2f,\"errors\":%d,\"p50\":%.2f,\"p90\":%.2f,"
+                            + "\"p99\":%.2f,\"max\":%.2f,\"bytes\":%d}",
+                    entry.getKey(), r.count, r.count / elapsedSeconds, r.errors,
+                    percentile(sorted, r.count, 0.50), percentile(sorted, r.count, 0.90),
+                    percentile(sorted, r.count, 0.99), percentile(sorted, r.count, 1.0), r.bytes));
+            first = false;
+        }
+        json.append("}}\n");
+        return json.toString();
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,97 @@
+#!/usr/bin/env bash
+# So sánh platform threads (mặc định) và virtual threads dưới tải hỗn hợp:
+# SLOW_CLIENTS request chậm (/export/excel, bị giới hạn bởi export.max-concurrent nên phải chờ)
+# chạy song song với FAST_REQUESTS request nhanh (GET /api/products/{id}).
+#
+# Với platform threads, export vượt giới hạn bị từ chối ngay (503, cột errors của dòng slow) để không
+# giữ thread của Tomcat; với virtual threads, request chờ permit không giữ platform thread nên được xếp hàng.
+#
+# Cách dùng (từ thư mục product-management, database đã có dữ liệu):
+#   ./mvnw -q package -DskipTests && load-test/compare-threads.sh
+# Kết quả: target/load-test/threads-report.md (p50/p95/p99 của request nhanh, số thread lớn nhất)
+set -euo pipefail
+
+# Jar chạy được có hậu tố -exec khi pom khai báo classifier; nếu không có thì dùng jar thường
+if [ -z "${JAR:-}" ]; then
+    JAR=$(ls target/product-management-*-exec.jar 2>/dev/null | head -1 || true)
+    if [ -z "$JAR" ]; then
+        JAR=$(ls target/product-management-*.jar 2>/dev/null \
+            | grep -v -e '-sources\.jar$' -e '-javadoc\.jar$' -e '-tests\.jar$' | head -1 || true)
+    fi
+fi
+if [ -z "$JAR" ]; then
+    echo "No product-management jar in target/ (run ./mvnw package -DskipTests first)" >&2
+    exit 1
+fi
+PORT=${PORT:-8080}
+SLOW_CLIENTS=${SLOW_CLIENTS:-300}
+FAST_REQUESTS=${FAST_REQUESTS:-2000}
+FAST_CONCURRENCY=${FAST_CONCURRENCY:-50}
+PRODUCT_ID=${PRODUCT_ID:-1}
+OUT=${OUT:-target/load-test}
+BASE="http://localhost:${PORT}"
+
+mkdir -p "$OUT"
+
+# In p50 / p95 / p99 / max (ms) và số request lỗi từ file "<http_code> <time_total>"
+summarize() {
+    awk '$1 >= 200 && $1 < 400 { print $2 * 1000 } ' "$1" | sort -n | awk '
+        { v[NR] = $1 }
+        END {
+            if (NR == 0) { print "| - | - | - | - |"; exit }
+            printf "| %.0f | %.0f | %.0f | %.0f |", v[int(NR * 0.50) + 1 > NR ? NR : int(NR * 0.50) + 1],
+                v[int(NR * 0.95) + 1 > NR ? NR : int(NR * 0.95) + 1],
+                v[int(NR * 0.99) + 1 > NR ? NR : int(NR * 0.99) + 1], v[NR]
+        }'
+    printf " %s |" "$(awk '$1 < 200 || $1 >= 400' "$1" | wc -l | tr -d ' ')"
+}
+
+run_mode() {
+    local virtual=$1
+    local label=$2
+    java -jar "$JAR" --server.port="$PORT" --spring.threads.virtual.enabled="$virtual" \
+        > "$OUT/$label-app.log" 2>&1 &
+    local pid=$!
+    trap 'kill $pid 2>/dev/null || true' EXIT
+
+    until curl -sf "$BASE/actuator/health" > /dev/null; do
+        sleep 1
+    done
+
+    # Số thread của JVM, lấy mẫu mỗi giây
+    ( while kill -0 "$pid" 2>/dev/null; do ps -o nlwp= -p "$pid"; sleep 1; done ) > "$OUT/$label-threads.txt" &
+    local sampler=$!
+
+    seq "$SLOW_CLIENTS" | xargs -P "$SLOW_CLIENTS" -I{} \
+        curl -s -o /dev/null -w '%{http_code} %{time_total}\n' "$BASE/export/excel" > "$OUT/$label-slow.txt" &
+    local slow=$!
+    sleep 2
+
+    seq "$FAST_REQUESTS" | xargs -P "$FAST_CONCURRENCY" -I{} \
+        curl -s -o /dev/null -w '%{http_code} %{time_total}\n' "$BASE/api/products/$PRODUCT_ID" \
+        > "$OUT/$label-fast.txt"
+
+    wait "$slow" || true
+    kill "$pid"
+    wait "$pid" 2>/dev/null || true
+    kill "$sampler" 2>/dev/null || true
+    trap - EXIT
+
+    printf "| %s | fast |" "$label"
+    summarize "$OUT/$label-fast.txt"
+    printf " %s |\n" "$(sort -n "$OUT/$label-threads.txt" | tail -1 | tr -d ' ')"
+    printf "| %s | slow |" "$label"
+    summarize "$OUT/$label-slow.txt"
+    printf " |\n"
+}
+
+{
+    echo "# Platform vs virtual threads"
+    echo
+    echo "slow clients: $SLOW_CLIENTS, fast requests: $FAST_REQUESTS (concurrency $FAST_CONCURRENCY)"
+    echo
+    echo "| mode | requests | p50 ms | p95 ms | p99 ms | max ms | errors | max JVM threads |"
+    echo "| :--- | :--- | ---: | ---: | ---: | ---: | ---: | ---: |"
+    run_mode false platform
+    run_mode true virtual
+} | tee "$OUT/threads-report.md"
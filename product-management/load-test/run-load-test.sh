@@ -0,0 +1,55 @@
+#!/usr/bin/env bash
+# Bộ load-test lặp lại được: khởi động ứng dụng với danh mục giả lập cố định (CatalogueGenerator,
+# cùng SIZE + SEED luôn cho cùng dữ liệu), phát tải hỗn hợp vào /products, /products/search,
+# /dashboard, /export/excel và /api/products, rồi ghi báo cáo độ trễ / throughput.
+#
+# Cách dùng (từ bất kỳ đâu):
+#   product-management/load-test/run-load-test.sh [label]
+# Mặc định dùng H2 in-memory; DB=mysql để dùng database trong application.properties
+# (bảng products sẽ bị thay bằng dữ liệu giả lập).
+# Báo cáo: product-management/target/load-test/<label>/report.md (và report.json);
+# so sánh hai bản: diff target/load-test/<a>/report.md target/load-test/<b>/report.md
+set -euo pipefail
+
+ROOT=$(cd "$(dirname "$0")/../.." && pwd)
+LABEL=${1:-$(git -C "$ROOT" rev-parse --short HEAD 2>/dev/null || echo local)}
+SIZE=${SIZE:-50000}
+SEED=${SEED:-42}
+WARMUP=${WARMUP:-30}
+DURATION=${DURATION:-120}
+CONCURRENCY=${CONCURRENCY:-32}
+PORT=${PORT:-8080}
+DB=${DB:-h2}
+OUT="$ROOT/product-management/target/load-test/$LABEL"
+BASE="http://localhost:${PORT}"
+
+mkdir -p "$OUT"
+mvn -q -f "$ROOT/pom.xml" package -DskipTests
+
+DB_ARGS=()
+if [ "$DB" = "h2" ]; then
+    DB_ARGS=(--spring.datasource.url="jdbc:h2:mem:loadtest;DB_CLOSE_DELAY=-1"
+        --spring.datasource.driver-class-name=org.h2.Driver
+        --spring.datasource.username=sa --spring.datasource.password=
+        --spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect)
+fi
+
+JAR=$(ls "$ROOT"/product-management/target/product-management-*-exec.jar | head -1)
+java -jar "$JAR" --server.port="$PORT" \
+    --catalogue.generate.size="$SIZE" --catalogue.generate.seed="$SEED" --catalogue.generate.replace=true \
+    --spring.jpa.show-sql=false --logging.level.com.example.productmanagement=INFO \
+    --management.endpoint.health.probes.enabled=true \
+    "${DB_ARGS[@]}" > "$OUT/app.log" 2>&1 &
+APP=$!
+trap 'kill $APP 2>/dev/null || true' EXIT
+
+# Sẵn sàng sau khi nạp dữ liệu và dựng search index / thống kê
+until curl -sf "$BASE/actuator/health/readiness" > /dev/null; do
+    kill -0 "$APP" 2>/dev/null || { echo "Application failed to start, see $OUT/app.log"; exit 1; }
+    sleep 1
+done
+
+BENCH="$ROOT/product-management-benchmarks/target"
+java -cp "$BENCH/classes:$(cat "$BENCH/classpath.txt")" com.example.productmanagement.loadtest.LoadTest \
+    baseUrl="$BASE" catalogueSize="$SIZE" seed="$SEED" concurrency="$CONCURRENCY" \
+    warmup="$WARMUP" duration="$DURATION" out="$OUT"
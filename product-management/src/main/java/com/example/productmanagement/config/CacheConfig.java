@@ -0,0 +1,13 @@
+package com.example.productmanagement.config;
+
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    // Cache Product theo id, dùng qua ProductCache (xem spring.cache.* trong application.properties);
+    // @EnableCaching để Spring Boot tạo CacheManager
+    public static final String PRODUCTS_CACHE = "products";
+}
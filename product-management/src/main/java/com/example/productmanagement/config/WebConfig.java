@@ -1,17 +1,11 @@
 package com.example.productmanagement.config;
 
 import org.springframework.context.annotation.Configuration;
-import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 @Configuration
 public class WebConfig implements WebMvcConfigurer {
 
-    @Override
-    public void addResourceHandlers(ResourceHandlerRegistry registry) {
-        // Ánh xạ /uploads/** tới thư mục tuyệt đối /uploads/
-        // file:///C:/path/to/your/project/uploads/
-        registry.addResourceHandler("/uploads/**")
-                .addResourceLocations("file:uploads/");
-    }
-}
\ No newline at end of file
+    // /uploads/** được phục vụ bởi ImageController (ETag, Range, Cache-Control, sendfile)
+    // thay cho resource handler mặc định trỏ tới thư mục file:uploads/
+}
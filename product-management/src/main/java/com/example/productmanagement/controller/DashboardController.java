@@ -1,6 +1,8 @@
 package com.example.productmanagement.controller;
 
-import com.example.productmanagement.entity.Product;
+import com.example.productmanagement.dto.DashboardStatistics;
+import com.example.productmanagement.dto.ProductSummary;
+import com.example.productmanagement.service.LowStockMonitor;
 import com.example.productmanagement.service.ProductService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
@@ -8,51 +10,42 @@ import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 
-import java.math.BigDecimal;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 @Controller
 @RequestMapping("/dashboard") // <-- BASE MAPPING
 public class DashboardController {
 
     private final ProductService productService;
+    private final LowStockMonitor lowStockMonitor;
 
     @Autowired
-    public DashboardController(ProductService productService) {
+    public DashboardController(ProductService productService, LowStockMonitor lowStockMonitor) {
         this.productService = productService;
+        this.lowStockMonitor = lowStockMonitor;
     }
 
     // Mapping method: Resolves to /dashboard
     @GetMapping 
     public String showDashboard(Model model) {
-        // 1. Thống kê cơ bản
-        long totalCount = productService.countProducts();
-        BigDecimal totalValue = productService.calculateTotalInventoryValue();
-        BigDecimal avgPrice = productService.calculateAverageProductPrice();
+        // 1 + 2. Thống kê cơ bản và theo Category: một truy vấn gom nhóm duy nhất
+        DashboardStatistics stats = productService.getDashboardStatistics();
         
-        // 2. Thống kê theo Category
-        List<String> categories = productService.findAllCategories();
-        Map<String, Long> categoryCounts = new HashMap<>();
-        for (String category : categories) {
-            categoryCounts.put(category, productService.countByCategory(category));
-        }
-        
-        // 3. Cảnh báo Low Stock (Ngưỡng 10 như yêu cầu)
-        int threshold = 10;
-        List<Product> lowStockProducts = productService.getLowStockAlerts(threshold);
+        // 3. Cảnh báo Low Stock theo ngưỡng của từng Category (inventory.low-stock.*);
+        // cập nhật trực tiếp qua GET /api/alerts/low-stock thay vì tải lại trang
+        List<ProductSummary> lowStockProducts = productService.getLowStockProducts();
         
         // 4. Sản phẩm gần đây
-        List<Product> recentProducts = productService.getRecentProducts();
+        List<ProductSummary> recentProducts = productService.getRecentProducts();
 
         // 5. Thêm dữ liệu vào Model
-        model.addAttribute("totalCount", totalCount);
-        model.addAttribute("totalValue", totalValue);
-        model.addAttribute("avgPrice", avgPrice);
-        model.addAttribute("categoryCounts", categoryCounts);
+        model.addAttribute("totalCount", stats.totalCount());
+        model.addAttribute("totalValue", stats.totalValue());
+        model.addAttribute("avgPrice", stats.averagePrice());
+        model.addAttribute("categoryCounts", stats.categoryCounts());
+        model.addAttribute("categoryStats", stats.categories());
         model.addAttribute("lowStockProducts", lowStockProducts);
-        model.addAttribute("lowStockThreshold", threshold);
+        model.addAttribute("lowStockThreshold", lowStockMonitor.getDefaultThreshold());
         model.addAttribute("recentProducts", recentProducts);
         
         return "dashboard"; // Trả về template dashboard.html
@@ -2,35 +2,93 @@ package com.example.productmanagement.controller;
 
 import com.example.productmanagement.entity.Product;
 import com.example.productmanagement.service.ProductService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.servlet.http.HttpServletResponse;
 import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
-import org.apache.poi.ss.usermodel.Workbook;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.io.FilterOutputStream;
 import java.io.IOException;
-import java.math.BigDecimal;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
+import java.time.Duration;
 import java.util.Date;
-import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
 @Controller
 @RequestMapping("/export")
 public class ExportController {
 
+    // Số dòng giữ trong heap; các dòng cũ hơn được flush ra file tạm
+    private static final int ROW_ACCESS_WINDOW = 100;
+
     private final ProductService productService;
 
-    public ExportController(ProductService productService) {
+    // Giới hạn số export đồng thời: mỗi export giữ một JDBC connection trong lúc đọc cursor,
+    // nên không để export chậm chiếm hết pool của các request khác (nhất là khi dùng virtual threads).
+    // Với platform threads, request chờ permit giữ một thread Tomcat nên không chờ: trả 503 ngay.
+    private final Semaphore exportPermits;
+    private final Duration acquireTimeout;
+
+    private final Timer exportTimer;
+    private final Counter exportRows;
+    private final Counter exportBytes;
+
+    public ExportController(ProductService productService,
+            @Value("${export.max-concurrent:4}") int maxConcurrent,
+            @Value("${export.acquire-timeout:PT30S}") Duration acquireTimeout,
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+            MeterRegistry meterRegistry) {
         this.productService = productService;
+        this.exportPermits = new Semaphore(maxConcurrent, true);
+        this.acquireTimeout = virtualThreads ? acquireTimeout : Duration.ZERO;
+        this.exportTimer = Timer.builder("export.duration")
+                .description("Time to build and send an export")
+                .tag("format", "xlsx")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        this.exportRows = Counter.builder("export.rows")
+                .description("Product rows written to exports")
+                .tag("format", "xlsx")
+                .register(meterRegistry);
+        this.exportBytes = Counter.builder("export.bytes")
+                .description("Bytes sent for exports")
+                .tag("format", "xlsx")
+                .baseUnit("bytes")
+                .register(meterRegistry);
     }
 
     @GetMapping("/excel")
     public void exportToExcel(HttpServletResponse response) throws IOException {
+        try {
+            if (!exportPermits.tryAcquire(acquireTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many exports in progress");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Export interrupted");
+        }
+        Timer.Sample sample = Timer.start();
+        try {
+            writeWorkbook(response);
+        } finally {
+            sample.stop(exportTimer);
+            exportPermits.release();
+        }
+    }
+
+    private void writeWorkbook(HttpServletResponse response) throws IOException {
         
         // 1. Cấu hình Header cho Response
         response.setContentType("application/octet-stream");
@@ -40,45 +98,61 @@ public class ExportController {
         String headerValue = "attachment; filename=products_" + currentDateTime + ".xlsx";
         response.setHeader(headerKey, headerValue);
 
-        // Lấy dữ liệu
-        List<Product> products = productService.getAllProducts();
+        // 2. Tạo Workbook dạng streaming (SXSSF): chỉ giữ một cửa sổ dòng trong bộ nhớ
+        SXSSFWorkbook workbook = new SXSSFWorkbook(ROW_ACCESS_WINDOW);
+        workbook.setCompressTempFiles(true);
+        try {
+            Sheet sheet = workbook.createSheet("Products");
+
+            // 3. Viết Header Row
+            Row headerRow = sheet.createRow(0);
+            String[] headers = {"ID", "Code", "Name", "Category", "Price", "Quantity", "Description"};
+            for (int i = 0; i < headers.length; i++) {
+                Cell cell = headerRow.createCell(i);
+                cell.setCellValue(headers[i]);
+            }
+
+            // 4. Viết Data Rows: đọc từng sản phẩm qua cursor thay vì nạp cả List
+            int[] rowNum = {1};
+            productService.forEachProduct(product -> writeRow(sheet.createRow(rowNum[0]++), product));
+            exportRows.increment(rowNum[0] - 1);
 
-        // 2. Tạo Workbook và Sheet
-        Workbook workbook = new XSSFWorkbook();
-        Sheet sheet = workbook.createSheet("Products");
+            // 5. Gửi Workbook tới Response (đếm số byte đã ghi)
+            workbook.write(new FilterOutputStream(response.getOutputStream()) {
+                @Override
+                public void write(int b) throws IOException {
+                    out.write(b);
+                    exportBytes.increment();
+                }
 
-        // 3. Viết Header Row
-        Row headerRow = sheet.createRow(0);
-        String[] headers = {"ID", "Code", "Name", "Category", "Price", "Quantity", "Description"};
-        for (int i = 0; i < headers.length; i++) {
-            Cell cell = headerRow.createCell(i);
-            cell.setCellValue(headers[i]);
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    out.write(b, off, len);
+                    exportBytes.increment(len);
+                }
+            });
+        } finally {
+            // Xóa các file tạm do SXSSF tạo ra
+            workbook.dispose();
+            workbook.close();
         }
+    }
 
-        // 4. Viết Data Rows
-        int rowNum = 1;
-        for (Product product : products) {
-            Row row = sheet.createRow(rowNum++);
-            
-            row.createCell(0).setCellValue(product.getId());
-            row.createCell(1).setCellValue(product.getProductCode());
-            row.createCell(2).setCellValue(product.getName());
-            row.createCell(3).setCellValue(product.getCategory());
-            
-            // Xử lý giá tiền (BigDecimal)
-            Cell priceCell = row.createCell(4);
-            if (product.getPrice() != null) {
-                priceCell.setCellValue(product.getPrice().doubleValue());
-            } else {
-                priceCell.setCellValue(0.0);
-            }
-            
-            row.createCell(5).setCellValue(product.getQuantity());
-            row.createCell(6).setCellValue(product.getDescription());
+    private void writeRow(Row row, Product product) {
+        row.createCell(0).setCellValue(product.getId());
+        row.createCell(1).setCellValue(product.getProductCode());
+        row.createCell(2).setCellValue(product.getName());
+        row.createCell(3).setCellValue(product.getCategory());
+
+        // Xử lý giá tiền (BigDecimal)
+        Cell priceCell = row.createCell(4);
+        if (product.getPrice() != null) {
+            priceCell.setCellValue(product.getPrice().doubleValue());
+        } else {
+            priceCell.setCellValue(0.0);
         }
 
-        // 5. Gửi Workbook tới Response
-        workbook.write(response.getOutputStream());
-        workbook.close();
+        row.createCell(5).setCellValue(product.getQuantity());
+        row.createCell(6).setCellValue(product.getDescription());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,185 @@
+package com.example.productmanagement.controller;
+
+import com.example.productmanagement.dto.LowStockAlert;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Đẩy cảnh báo Low Stock tới các màn hình kho qua Server-Sent Events (thay cho poll /dashboard).
+ *
+ * Mỗi client có một hàng đợi giới hạn và một virtual thread riêng ghi ra kết nối, nên client
+ * chậm không chặn luồng phát sự kiện hay các client khác. Khi hàng đợi đầy, sự kiện cũ nhất bị
+ * bỏ và client nhận event "dropped" (kèm số sự kiện bị mất) để tải lại danh sách Low Stock.
+ */
+@RestController
+@RequestMapping("/api/alerts/low-stock")
+public class LowStockAlertController {
+
+    private static final Logger log = LoggerFactory.getLogger(LowStockAlertController.class);
+
+    private final int bufferSize;
+    private final int maxSubscribers;
+    private final long heartbeatMillis;
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    // Số chỗ đã giữ (tăng trước khi tạo subscriber) để giới hạn maxSubscribers không bị vượt khi kết nối đồng thời
+    private final AtomicInteger reserved = new AtomicInteger();
+    private final ThreadFactory senderThreads = Thread.ofVirtual().name("low-stock-sse-", 1).factory();
+
+    public LowStockAlertController(@Value("${inventory.low-stock.subscriber-buffer:256}") int bufferSize,
+            @Value("${inventory.low-stock.max-subscribers:200}") int maxSubscribers,
+            @Value("${inventory.low-stock.heartbeat-interval:PT15S}") Duration heartbeatInterval) {
+        this.bufferSize = bufferSize;
+        this.maxSubscribers = maxSubscribers;
+        this.heartbeatMillis = heartbeatInterval.toMillis();
+    }
+
+    // GET /api/alerts/low-stock (Accept: text/event-stream)
+    // Event "low-stock" / "restocked" / "removed" / "stock-rejected" với data là LowStockAlert (id = sequence); "dropped" khi client bị tụt lại
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribe() {
+        if (reserved.incrementAndGet() > maxSubscribers) {
+            reserved.decrementAndGet();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many alert subscribers");
+        }
+        // Không giới hạn thời gian; heartbeat phát hiện client đã ngắt kết nối
+        SseEmitter emitter = new SseEmitter(0L);
+        Subscriber subscriber = new Subscriber(emitter);
+        emitter.onCompletion(subscriber::close);
+        emitter.onTimeout(subscriber::close);
+        emitter.onError(e -> subscriber.close());
+        subscribers.add(subscriber);
+        try {
+            subscriber.start();
+        } catch (RuntimeException e) {
+            subscriber.close();
+            throw e;
+        }
+        return emitter;
+    }
+
+    // Phát sau khi commit (LowStockMonitor); chỉ đưa vào hàng đợi, không ghi ra mạng trên luồng này
+    @EventListener
+    public void onAlert(LowStockAlert alert) {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(alert);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.close();
+            subscriber.emitter.complete();
+        }
+    }
+
+    private static String eventName(LowStockAlert.Type type) {
+        return switch (type) {
+            case LOW -> "low-stock";
+            case RESTOCKED -> "restocked";
+            case REMOVED -> "removed";
+            case REJECTED -> "stock-rejected";
+        };
+    }
+
+    private final class Subscriber implements Runnable {
+
+        private final SseEmitter emitter;
+        private final BlockingQueue<LowStockAlert> queue = new ArrayBlockingQueue<>(bufferSize);
+        private final AtomicInteger dropped = new AtomicInteger();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private volatile Thread sender;
+
+        Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        void start() {
+            sender = senderThreads.newThread(this);
+            sender.start();
+        }
+
+        void offer(LowStockAlert alert) {
+            while (!queue.offer(alert)) {
+                // Hàng đợi đầy: bỏ sự kiện cũ nhất thay vì chặn luồng phát hoặc tăng bộ nhớ
+                if (queue.poll() != null) {
+                    dropped.incrementAndGet();
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            Throwable failure = null;
+            try {
+                while (!closed.get()) {
+                    LowStockAlert alert = queue.poll(heartbeatMillis, TimeUnit.MILLISECONDS);
+                    int lost = dropped.getAndSet(0);
+                    if (lost > 0) {
+                        emitter.send(SseEmitter.event().name("dropped").data(Map.of("count", lost)));
+                    }
+                    if (alert != null) {
+                        emitter.send(SseEmitter.event()
+                                .id(String.valueOf(alert.sequence()))
+                                .name(eventName(alert.type()))
+                                .data(alert, MediaType.APPLICATION_JSON));
+                    } else if (lost == 0) {
+                        emitter.send(SseEmitter.event().comment("keep-alive"));
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (IOException | IllegalStateException e) {
+                // Client đã ngắt kết nối hoặc emitter đã đóng
+                log.debug("Low-stock subscriber disconnected: {}", e.getMessage());
+                failure = e;
+            } finally {
+                close();
+                // Trả request async về container thay vì để nó treo tới khi container tự dọn
+                try {
+                    if (failure != null) {
+                        emitter.completeWithError(failure);
+                    } else {
+                        emitter.complete();
+                    }
+                } catch (IllegalStateException e) {
+                    // Emitter đã hoàn tất (client ngắt kết nối, timeout hoặc shutdown)
+                }
+            }
+        }
+
+        void close() {
+            if (!closed.compareAndSet(false, true)) {
+                return;
+            }
+            subscribers.remove(this);
+            reserved.decrementAndGet();
+            Thread thread = sender;
+            if (thread != null && thread != Thread.currentThread()) {
+                thread.interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.productmanagement.controller;
+
+import com.example.productmanagement.dto.BatchItemResult;
+import com.example.productmanagement.entity.Product;
+import com.example.productmanagement.service.ProductBatchService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+@RestController
+@RequestMapping("/api/products/batch")
+public class ProductBatchController {
+
+    private final ProductBatchService productBatchService;
+
+    public ProductBatchController(ProductBatchService productBatchService) {
+        this.productBatchService = productBatchService;
+    }
+
+    // POST /api/products/batch : Tạo nhiều sản phẩm
+    @PostMapping
+    public ResponseEntity<List<BatchItemResult>> createProducts(@RequestBody List<Product> products) {
+        return run(() -> productBatchService.create(products));
+    }
+
+    // PUT /api/products/batch : Cập nhật nhiều sản phẩm (mỗi phần tử phải có id)
+    // version > 0 trong phần tử: chỉ cập nhật nếu khớp version hiện tại, nếu không phần tử đó là CONFLICT
+    @PutMapping
+    public ResponseEntity<List<BatchItemResult>> updateProducts(@RequestBody List<Product> products) {
+        return run(() -> productBatchService.update(products));
+    }
+
+    // POST /api/products/batch/upsert : Tạo mới hoặc cập nhật theo productCode
+    @PostMapping("/upsert")
+    public ResponseEntity<List<BatchItemResult>> upsertProducts(@RequestBody List<Product> products) {
+        return run(() -> productBatchService.upsert(products));
+    }
+
+    // DELETE /api/products/batch : Xóa nhiều sản phẩm theo danh sách id
+    @DeleteMapping
+    public ResponseEntity<List<BatchItemResult>> deleteProducts(@RequestBody List<Long> ids) {
+        return run(() -> productBatchService.delete(ids));
+    }
+
+    // Trả về trạng thái từng phần tử; lỗi của cả request (ví dụ quá nhiều phần tử) trả về 400
+    private ResponseEntity<List<BatchItemResult>> run(Supplier<List<BatchItemResult>> operation) {
+        try {
+            return ResponseEntity.ok(operation.get());
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+}
@@ -1,21 +1,28 @@
 package com.example.productmanagement.controller;
 
+import com.example.productmanagement.dto.ProductSummary;
 import com.example.productmanagement.entity.Product;
 import com.example.productmanagement.service.FileStorageService;
+import com.example.productmanagement.service.ImageProcessingService;
+import com.example.productmanagement.service.ProductCursor;
 import com.example.productmanagement.service.ProductService;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Window;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Supplier;
 import java.math.BigDecimal;
 
 import jakarta.validation.Valid;
@@ -29,10 +36,13 @@ public class ProductController {
 
     private final ProductService productService;
     private final FileStorageService fileStorageService;
+    private final ImageProcessingService imageProcessingService;
 
-    public ProductController(ProductService productService, FileStorageService fileStorageService) {
+    public ProductController(ProductService productService, FileStorageService fileStorageService,
+            ImageProcessingService imageProcessingService) {
         this.productService = productService;
         this.fileStorageService = fileStorageService;
+        this.imageProcessingService = imageProcessingService;
     }
 
     // Phương thức chung để thêm Categories vào Model
@@ -41,6 +51,30 @@ public class ProductController {
         model.addAttribute("categories", categories);
     }
 
+    // Phân trang keyset: dùng khi request có tham số cursor (rỗng = trang đầu).
+    // Không đếm tổng số dòng nên totalPages = 0, chỉ có liên kết "Sau".
+    private void addKeysetPage(Model model, String pageUrl, String sortBy, String sortDir, int size,
+            Supplier<Window<Product>> scroll) {
+        Sort sort;
+        Window<Product> window;
+        try {
+            sort = ProductCursor.sortFor(sortBy, sortDir);
+            window = scroll.get();
+        } catch (IllegalArgumentException e) {
+            // Cột sắp xếp không hỗ trợ hoặc token bị sửa/hỏng
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        model.addAttribute("products", window.getContent());
+        model.addAttribute("keysetMode", true);
+        model.addAttribute("pageUrl", pageUrl);
+        model.addAttribute("nextCursor", ProductCursor.nextCursor(window, sort));
+        model.addAttribute("currentPage", 0);
+        model.addAttribute("totalPages", 0);
+        model.addAttribute("size", size);
+        model.addAttribute("sortBy", sortBy);
+        model.addAttribute("sortDir", sortDir);
+    }
+
     // List all products
     // List all products (bao gồm cả phân trang và lọc Category)
     @GetMapping({ "", "/" }) // Giả định mapping là "/products"
@@ -50,8 +84,17 @@ public class ProductController {
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(required = false) String sortBy, // THAM SỐ SORTING MỚI
             @RequestParam(defaultValue = "asc") String sortDir, // THAM SỐ SORTING MỚI
+            @RequestParam(required = false) String cursor, // Keyset pagination
             Model model) {
 
+        if (cursor != null) {
+            addKeysetPage(model, "/products", sortBy, sortDir, size, () -> productService.scrollProducts(
+                    null, category, null, null, sortBy, sortDir, cursor, size));
+            model.addAttribute("selectedCategory", category);
+            addCommonAttributes(model);
+            return "product-list";
+        }
+
         // 1. XỬ LÝ SORTING
         Sort sort = Sort.unsorted();
         if (sortBy != null && !sortBy.isEmpty()) {
@@ -60,7 +103,7 @@ public class ProductController {
 
         // 2. TẠO PAGEABLE KẾT HỢP PAGINATION VÀ SORTING
         Pageable pageable = PageRequest.of(page, size, sort);
-        Page<Product> productPage;
+        Page<ProductSummary> productPage;
 
         // 3. XỬ LÝ FILTERING VÀ GỌI SERVICE
         if (category != null && !category.isEmpty()) {
@@ -129,16 +172,31 @@ public class ProductController {
         // 2. XỬ LÝ LỖI NGHIỆP VỤ (Ví dụ: Trùng Product Code)
         try {
             // Xử lý Upload File nếu có file mới
+            String uploadedFile = null;
             if (!imageFile.isEmpty()) {
-                String fileName = fileStorageService.storeFile(imageFile);
-                product.setImagePath(fileName); // Lưu tên file vào Entity
+                uploadedFile = fileStorageService.storeFile(imageFile);
+                product.setImagePath(uploadedFile); // Lưu tên file vào Entity
+                product.setImageVariants(null); // Bản thu nhỏ sẽ được tạo lại (bất đồng bộ)
             } else if (product.getId() == null || (product.getImagePath() == null || product.getImagePath().isEmpty())) {
                 // Nếu tạo mới mà không có file, gán giá trị mặc định nếu cần
                 // Hoặc giữ nguyên nếu là update và không có file mới
                 product.setImagePath(null); 
+                product.setImageVariants(null);
+            } else {
+                // Giữ ảnh cũ: bản thu nhỏ lấy từ database, không tin giá trị gửi lên từ form
+                String imagePath = product.getImagePath();
+                product.setImageVariants(productService.getProductById(product.getId())
+                        .filter(stored -> imagePath.equals(stored.getImagePath()))
+                        .map(Product::getImageVariants)
+                        .orElse(null));
             }
             // Lưu sản phẩm nếu không có lỗi validation
-            productService.saveProduct(product);
+            Product saved = productService.saveProduct(product);
+
+            // Tạo ảnh thu nhỏ trên worker pool, không chặn request
+            if (uploadedFile != null) {
+                imageProcessingService.createVariantsAsync(saved.getId(), uploadedFile);
+            }
 
             redirectAttributes.addFlashAttribute("message",
                     product.getId() == null ? "Product added successfully!" : "Product updated successfully!");
@@ -171,8 +229,18 @@ public class ProductController {
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(required = false) String sortBy,
             @RequestParam(defaultValue = "asc") String sortDir,
+            @RequestParam(required = false) String cursor,
             Model model) {
 
+        if (cursor != null) {
+            // Cùng cách khớp từ khóa (search index) như khi phân trang theo số trang
+            addKeysetPage(model, "/products/search", sortBy, sortDir, size,
+                    () -> productService.scrollSearch(keyword, sortBy, sortDir, cursor, size));
+            model.addAttribute("keyword", keyword);
+            addCommonAttributes(model);
+            return "product-list";
+        }
+
         // 1. XỬ LÝ SORTING (Sao chép từ listProducts)
         Sort sort = Sort.unsorted();
         if (sortBy != null && !sortBy.isEmpty()) {
@@ -183,8 +251,14 @@ public class ProductController {
         // Sử dụng PageRequest.of(page, size)
         Pageable pageable = PageRequest.of(page, size, sort);
 
-        // 2. Gọi Service và nhận Page<Product>
-        Page<Product> productPage = productService.searchProducts(keyword, pageable);
+        // 2. Gọi Service và nhận Page<ProductSummary>
+        Page<ProductSummary> productPage;
+        try {
+            productPage = productService.searchProducts(keyword, pageable);
+        } catch (IllegalArgumentException e) {
+            // Cột sắp xếp không có trong search index
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
 
         // 3. Đặt các thuộc tính cần thiết vào Model
         model.addAttribute("products", productPage.getContent());
@@ -212,8 +286,22 @@ public class ProductController {
             @RequestParam(defaultValue = "10") int size, // Tham số phân trang
             @RequestParam(required = false) String sortBy,
             @RequestParam(defaultValue = "asc") String sortDir,
+            @RequestParam(required = false) String cursor,
             Model model) {
 
+        if (cursor != null) {
+            addKeysetPage(model, "/products/advanced-search", sortBy, sortDir, size,
+                    () -> productService.scrollProducts(name, category, minPrice, maxPrice,
+                            sortBy, sortDir, cursor, size));
+            model.addAttribute("searchName", name);
+            model.addAttribute("searchCategory", category);
+            model.addAttribute("minPrice", minPrice);
+            model.addAttribute("maxPrice", maxPrice);
+            model.addAttribute("selectedCategory", category);
+            addCommonAttributes(model);
+            return "product-list";
+        }
+
         // 1. XỬ LÝ SORTING (Sao chép từ listProducts)
         Sort sort = Sort.unsorted();
         if (sortBy != null && !sortBy.isEmpty()) {
@@ -222,8 +310,8 @@ public class ProductController {
 
         Pageable pageable = PageRequest.of(page, size, sort);
 
-        // 1. Gọi Service và nhận Page<Product>
-        Page<Product> productPage = productService.advancedSearchProducts(name, category, minPrice, maxPrice, pageable);
+        // 1. Gọi Service và nhận Page<ProductSummary>
+        Page<ProductSummary> productPage = productService.advancedSearchProducts(name, category, minPrice, maxPrice, pageable);
 
         // 2. Đặt dữ liệu phân trang vào Model
         model.addAttribute("products", productPage.getContent());
@@ -1,40 +1,138 @@
 package com.example.productmanagement.controller;
 
+import com.example.productmanagement.dto.ImportReport;
+import com.example.productmanagement.dto.StockAdjustment;
+import com.example.productmanagement.dto.StockLevel;
 import com.example.productmanagement.entity.Product;
+import com.example.productmanagement.service.CatalogRevision;
+import com.example.productmanagement.service.FileStorageService;
+import com.example.productmanagement.service.InsufficientStockException;
+import com.example.productmanagement.service.ProductFields;
+import com.example.productmanagement.service.ProductImportService;
 import com.example.productmanagement.service.ProductService;
+import com.example.productmanagement.service.UploadRejectedException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import tools.jackson.databind.ObjectMapper;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.URI;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
 
 @RestController
 @RequestMapping("/api/products")
 public class ProductRestController {
 
+    private static final MediaType APPLICATION_SMILE = MediaType.parseMediaType("application/x-jackson-smile");
+
     private final ProductService productService;
+    private final ProductImportService productImportService;
+    private final FileStorageService fileStorageService;
+    private final ObjectMapper objectMapper;
+    private final CatalogRevision catalogRevision;
 
-    public ProductRestController(ProductService productService) {
+    public ProductRestController(ProductService productService, ProductImportService productImportService,
+            FileStorageService fileStorageService, ObjectMapper objectMapper, CatalogRevision catalogRevision) {
         this.productService = productService;
+        this.productImportService = productImportService;
+        this.fileStorageService = fileStorageService;
+        this.objectMapper = objectMapper;
+        this.catalogRevision = catalogRevision;
     }
 
     // GET /api/products : Lấy tất cả sản phẩm
+    // Hỗ trợ If-None-Match / If-Modified-Since: trả 304 mà không đọc database nếu danh mục không đổi
+    // ?fields=id,price,quantity : chỉ SELECT và serialize các thuộc tính này
+    // Accept: application/cbor hoặc application/x-jackson-smile : body dạng nhị phân (mọi endpoint /api/products)
     @GetMapping
-    public ResponseEntity<List<Product>> getAllProducts() {
+    public ResponseEntity<List<?>> getAllProducts(@RequestParam(required = false) String fields,
+            WebRequest request, HttpServletResponse response) {
+        List<String> selected = parseFields(fields);
+        // ETag khác nhau cho mỗi representation (định dạng, fields); Vary cả trên 304
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        String etag = quoted(catalogRevision.etag() + variantOf(formatOf(request), selected));
+        long lastModified = catalogRevision.lastModified();
+        // checkNotModified cũng ghi ETag / Last-Modified vào response
+        if (request.checkNotModified(etag, lastModified)) {
+            return null; // 304 Not Modified
+        }
         // Sử dụng Service findAll() mà không cần Pageable để lấy List<Product>
         // Ta sẽ tạo thêm một phương thức getAllProducts() không tham số trong ProductService
-        List<Product> products = productService.getAllProducts(); 
-        return ResponseEntity.ok(products); 
+        List<?> products = selected == null ? productService.getAllProducts()
+                : productService.getAllProducts(selected);
+        return ResponseEntity.ok(products);
+    }
+
+    // GET /api/products (Accept: application/x-ndjson) : Stream từng sản phẩm, mỗi dòng một JSON
+    // Đọc theo lô qua cursor và ghi thẳng ra output stream, không dựng List trong bộ nhớ
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllProducts(@RequestParam(required = false) String fields,
+            WebRequest request, HttpServletResponse response) {
+        List<String> selected = parseFields(fields);
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        String etag = quoted(catalogRevision.etag() + variantOf("ndjson", selected));
+        long lastModified = catalogRevision.lastModified();
+        if (request.checkNotModified(etag, lastModified)) {
+            return null;
+        }
+        StreamingResponseBody body = outputStream -> {
+            Consumer<Object> writeLine = product -> {
+                try {
+                    outputStream.write(objectMapper.writeValueAsBytes(product));
+                    outputStream.write('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            };
+            if (selected == null) {
+                productService.forEachProduct(writeLine::accept);
+            } else {
+                productService.forEachProduct(selected, writeLine::accept);
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
     }
 
     // GET /api/products/{id} : Lấy sản phẩm theo ID
+    // ETag lấy từ version và quantity (gồm tồn kho chưa flush); 304 nếu client đã có bản mới nhất (không serialize entity)
+    // ?fields= : entity lấy từ cache nên chỉ lọc thuộc tính khi serialize, không đọc lại database
     @GetMapping("/{id}")
-    public ResponseEntity<Product> getProduct(@PathVariable Long id) {
-        return productService.getProductById(id)
-                .map(ResponseEntity::ok)
-                .orElseGet(() -> ResponseEntity.notFound().build()); // Trả về 404 nếu không tìm thấy
+    public ResponseEntity<?> getProduct(@PathVariable Long id, @RequestParam(required = false) String fields,
+            WebRequest request, HttpServletResponse response) {
+        List<String> selected = parseFields(fields);
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        Optional<Product> found = productService.getProductById(id);
+        if (found.isEmpty()) {
+            return ResponseEntity.notFound().build(); // Trả về 404 nếu không tìm thấy
+        }
+        Product product = found.get();
+        if (request.checkNotModified(etagOf(product, variantOf(formatOf(request), selected)),
+                lastModifiedOf(product))) {
+            return null; // 304 Not Modified
+        }
+        return ResponseEntity.ok()
+                .body(selected == null ? product : ProductFields.select(product, selected));
     }
 
     // POST /api/products : Tạo sản phẩm mới
@@ -48,6 +146,9 @@ public class ProductRestController {
             return ResponseEntity
                     .created(URI.create("/api/products/" + savedProduct.getId()))
                     .body(savedProduct);
+        } catch (DataIntegrityViolationException e) {
+            // Unique constraint uk_products_product_code
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Product code already exists");
         } catch (IllegalArgumentException e) {
              // Xử lý lỗi nghiệp vụ (ví dụ: Product Code bị trùng)
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
@@ -55,16 +156,32 @@ public class ProductRestController {
     }
 
     // PUT /api/products/{id} : Cập nhật sản phẩm
+    // If-Match (tùy chọn): chỉ cập nhật nếu ETag khớp version hiện tại, nếu không trả 412
     @PutMapping("/{id}")
-    public ResponseEntity<Product> updateProduct(@PathVariable Long id, @RequestBody Product product) {
-        if (!productService.getProductById(id).isPresent()) {
+    public ResponseEntity<Product> updateProduct(@PathVariable Long id, @RequestBody Product product,
+            @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch, WebRequest request) {
+        // Version đọc từ database (không qua cache) để If-Match và optimistic locking dựa trên bản mới nhất
+        Optional<Long> current = productService.getProductVersion(id);
+        if (current.isEmpty()) {
             return ResponseEntity.notFound().build(); // Không tìm thấy sản phẩm để cập nhật
         }
+        if (!matches(ifMatch, id, current.get())) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+        }
         
         try {
             product.setId(id); // Thiết lập ID từ path variable
+            // Cập nhật dựa trên version vừa kiểm tra: nếu có ai sửa xen giữa, Hibernate sẽ từ chối
+            product.setVersion(current.get());
             Product updatedProduct = productService.saveProduct(product);
-            return ResponseEntity.ok(updatedProduct);
+            return ResponseEntity.ok()
+                    .headers(versionHeaders(updatedProduct, variantOf(formatOf(request), null)))
+                    .body(updatedProduct);
+        } catch (OptimisticLockingFailureException e) {
+            throw new ResponseStatusException(ifMatch != null ? HttpStatus.PRECONDITION_FAILED : HttpStatus.CONFLICT,
+                    "Product has been modified concurrently");
+        } catch (DataIntegrityViolationException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Product code already exists");
         } catch (IllegalArgumentException e) {
             // Xử lý lỗi nghiệp vụ (ví dụ: Product Code bị trùng)
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
@@ -72,13 +189,179 @@ public class ProductRestController {
     }
 
     // DELETE /api/products/{id} : Xóa sản phẩm
+    // If-Match (tùy chọn): chỉ xóa nếu ETag khớp version hiện tại, nếu không trả 412
     @DeleteMapping("/{id}")
-    public ResponseEntity<Void> deleteProduct(@PathVariable Long id) {
-        if (!productService.getProductById(id).isPresent()) {
+    public ResponseEntity<Void> deleteProduct(@PathVariable Long id,
+            @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        Optional<Long> current = productService.getProductVersion(id);
+        if (current.isEmpty()) {
             return ResponseEntity.notFound().build(); // Không tìm thấy sản phẩm, trả về 404
         }
+        if (!matches(ifMatch, id, current.get())) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+        }
         
-        productService.deleteProduct(id);
+        if (ifMatch == null) {
+            productService.deleteProduct(id);
+        } else {
+            try {
+                productService.deleteProduct(id, current.get());
+            } catch (OptimisticLockingFailureException e) {
+                return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+            }
+        }
         return ResponseEntity.noContent().build(); // Trả về 204 No Content
     }
-}
\ No newline at end of file
+
+    // GET /api/products/{id}/stock : Tồn kho hiện tại (gồm cả delta chưa ghi ở chế độ write-behind)
+    @GetMapping("/{id}/stock")
+    public ResponseEntity<StockLevel> getStock(@PathVariable Long id) {
+        return productService.getStockLevel(id)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    // POST /api/products/{id}/stock : Điều chỉnh tồn kho nguyên tử, body {"delta": -3}
+    // Trả về tồn kho mới; 409 nếu bán vượt tồn kho (không có gì được ghi)
+    @PostMapping("/{id}/stock")
+    public ResponseEntity<StockLevel> adjustStock(@PathVariable Long id, @RequestBody StockAdjustment adjustment) {
+        if (adjustment == null || adjustment.delta() == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "delta is required");
+        }
+        try {
+            return productService.adjustStock(id, adjustment.delta())
+                    .map(ResponseEntity::ok)
+                    .orElseGet(() -> ResponseEntity.notFound().build());
+        } catch (InsufficientStockException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage());
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    // Tham số fields không hợp lệ (thuộc tính lạ) -> 400
+    private static List<String> parseFields(String fields) {
+        try {
+            return ProductFields.parse(fields);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    // ETag mạnh của một representation: "<id>-<version>-<quantity><variant>", variant rỗng với JSON đầy đủ.
+    // quantity có trong ETag vì ở chế độ write-behind tồn kho đổi (delta chưa flush) mà version chưa đổi
+    private static String etagOf(Product product, String variant) {
+        return quoted(product.getId() + "-" + product.getVersion() + "-" + product.getQuantity() + variant);
+    }
+
+    private static String quoted(String tag) {
+        return "\"" + tag + "\"";
+    }
+
+    /**
+     * Phần phân biệt representation trong ETag: "" (JSON đầy đủ), "+cbor", "+json;fields=id,price"...
+     * Mỗi representation có ETag mạnh riêng nên cache không trả 304 cho body sai định dạng.
+     */
+    private static String variantOf(String format, List<String> fields) {
+        if ("json".equals(format) && fields == null) {
+            return "";
+        }
+        return "+" + format + (fields == null ? "" : ";fields=" + String.join(",", fields));
+    }
+
+    // Định dạng mà content negotiation sẽ chọn theo Accept: cbor, smile hoặc json (mặc định)
+    private static String formatOf(WebRequest request) {
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        if (accept == null || accept.isBlank()) {
+            return "json";
+        }
+        List<MediaType> accepted;
+        try {
+            accepted = new ArrayList<>(MediaType.parseMediaTypes(accept));
+        } catch (InvalidMediaTypeException e) {
+            return "json";
+        }
+        accepted.sort(Comparator.comparingDouble(MediaType::getQualityValue).reversed());
+        for (MediaType type : accepted) {
+            if (type.getQualityValue() == 0) {
+                continue;
+            }
+            if (type.equalsTypeAndSubtype(MediaType.APPLICATION_CBOR)) {
+                return "cbor";
+            }
+            if (type.equalsTypeAndSubtype(APPLICATION_SMILE)) {
+                return "smile";
+            }
+            if (type.isCompatibleWith(MediaType.APPLICATION_JSON)) {
+                return "json";
+            }
+        }
+        return "json";
+    }
+
+    // -1 khi chưa biết (dữ liệu cũ chưa có updated_at): chỉ dùng ETag
+    private static long lastModifiedOf(Product product) {
+        return product.getUpdatedAt() == null ? -1
+                : product.getUpdatedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static HttpHeaders versionHeaders(Product product, String variant) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setETag(etagOf(product, variant));
+        long lastModified = lastModifiedOf(product);
+        if (lastModified >= 0) {
+            headers.setLastModified(lastModified);
+        }
+        return headers;
+    }
+
+    /**
+     * So khớp header If-Match (so sánh mạnh; ETag yếu W/ không bao giờ khớp). Không có header thì luôn khớp.
+     * ETag của mọi representation (định dạng, fields, tồn kho đang chờ flush) cùng version đều khớp.
+     */
+    private static boolean matches(String ifMatch, Long id, long currentVersion) {
+        if (ifMatch == null) {
+            return true;
+        }
+        String base = "\"" + id + "-" + currentVersion;
+        for (String candidate : ifMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*") || tag.equals(base + "\"")
+                    || ((tag.startsWith(base + "+") || tag.startsWith(base + "-")) && tag.endsWith("\""))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // POST /api/products/import : Import hàng loạt từ file CSV hoặc XLSX (multipart, field "file")
+    // Header cần có các cột Code, Name, Category, Price, Quantity (Description, Image tùy chọn)
+    @PostMapping(path = "/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<ImportReport> importProducts(@RequestParam("file") MultipartFile file)
+            throws IOException {
+        try {
+            return ResponseEntity.ok(productImportService.importFile(file));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    // POST /api/products/images : Upload ảnh dạng raw body (Content-Type: image/*)
+    // Dữ liệu được ghi thẳng từ request stream ra đĩa (không qua bộ đệm multipart).
+    // Trả về fileName để dùng làm imagePath của sản phẩm.
+    @PostMapping(path = "/images", consumes = "image/*")
+    public ResponseEntity<Map<String, String>> uploadImage(HttpServletRequest request) throws IOException {
+        if (request.getContentLengthLong() > fileStorageService.getMaxFileSize()) {
+            throw new ResponseStatusException(HttpStatus.CONTENT_TOO_LARGE, "File is too large");
+        }
+        try {
+            String fileName = fileStorageService.store(request.getInputStream());
+            return ResponseEntity
+                    .created(URI.create("/uploads/" + fileName))
+                    .body(Map.of("fileName", fileName));
+        } catch (UploadRejectedException e) {
+            throw new ResponseStatusException(e.isTooLarge() ? HttpStatus.CONTENT_TOO_LARGE
+                    : HttpStatus.UNSUPPORTED_MEDIA_TYPE, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.productmanagement.dto;
+
+/**
+ * Kết quả xử lý một phần tử trong request batch (index theo thứ tự trong request).
+ */
+public record BatchItemResult(int index, Long id, String productCode, Status status, String message) {
+
+    public enum Status {
+        CREATED, UPDATED, DELETED, NOT_FOUND, INVALID, CONFLICT,
+        // Lỗi database khi ghi riêng phần tử này (message là nguyên nhân)
+        FAILED
+    }
+
+    public static BatchItemResult of(int index, Long id, String productCode, Status status) {
+        return new BatchItemResult(index, id, productCode, status, null);
+    }
+
+    public static BatchItemResult failed(int index, Long id, String productCode, Status status, String message) {
+        return new BatchItemResult(index, id, productCode, status, message);
+    }
+}
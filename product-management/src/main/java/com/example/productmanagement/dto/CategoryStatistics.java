@@ -0,0 +1,15 @@
+package com.example.productmanagement.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Thống kê của một Category: số sản phẩm, giá trị kho (price * quantity) và tổng giá.
+ */
+public record CategoryStatistics(String category, Long productCount, BigDecimal totalValue, BigDecimal priceSum) {
+
+    public CategoryStatistics {
+        productCount = productCount != null ? productCount : 0L;
+        totalValue = totalValue != null ? totalValue : BigDecimal.ZERO;
+        priceSum = priceSum != null ? priceSum : BigDecimal.ZERO;
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.productmanagement.dto;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ảnh chụp (bất biến) các số liệu của Dashboard, tính từ thống kê theo Category.
+ */
+public record DashboardStatistics(long totalCount, BigDecimal totalValue, BigDecimal averagePrice,
+        List<CategoryStatistics> categories) {
+
+    public DashboardStatistics {
+        categories = List.copyOf(categories);
+    }
+
+    /**
+     * Gộp thống kê từng Category thành số liệu tổng.
+     */
+    public static DashboardStatistics of(List<CategoryStatistics> categories) {
+        long totalCount = 0;
+        BigDecimal totalValue = BigDecimal.ZERO;
+        BigDecimal priceSum = BigDecimal.ZERO;
+        for (CategoryStatistics category : categories) {
+            totalCount += category.productCount();
+            totalValue = totalValue.add(category.totalValue());
+            priceSum = priceSum.add(category.priceSum());
+        }
+        BigDecimal averagePrice = totalCount == 0
+                ? BigDecimal.ZERO
+                : priceSum.divide(BigDecimal.valueOf(totalCount), 2, RoundingMode.HALF_UP);
+        return new DashboardStatistics(totalCount, totalValue, averagePrice, categories);
+    }
+
+    /**
+     * Số sản phẩm theo Category (giữ thứ tự tên Category).
+     */
+    public Map<String, Long> categoryCounts() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (CategoryStatistics category : categories) {
+            counts.put(category.category(), category.productCount());
+        }
+        return Collections.unmodifiableMap(counts);
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.productmanagement.dto;
+
+import java.util.List;
+
+/**
+ * Kết quả import hàng loạt: số dòng đã đọc / đã lưu / bị lỗi, tốc độ và lỗi theo từng dòng.
+ */
+public record ImportReport(long totalRows, long importedRows, long failedRows, long durationMillis,
+        double rowsPerSecond, List<RowError> errors) {
+
+    public ImportReport {
+        errors = List.copyOf(errors);
+    }
+
+    /**
+     * Lỗi của một dòng dữ liệu (row tính từ 1, không kể dòng header).
+     */
+    public record RowError(long row, String productCode, String message) {
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.productmanagement.dto;
+
+import java.time.Instant;
+
+/**
+ * Tồn kho của một sản phẩm vừa vượt qua ngưỡng Low Stock của Category: LOW khi giảm
+ * xuống dưới ngưỡng, RESTOCKED khi tăng trở lại, REMOVED khi sản phẩm đang Low Stock bị xóa.
+ * REJECTED: một điều chỉnh tồn kho đã được xác nhận (write-behind) bị database từ chối khi flush
+ * và không được ghi; quantity là số lượng trong database. sequence tăng dần theo thứ tự phát.
+ */
+public record LowStockAlert(long sequence, Long productId, String category, int quantity, int threshold,
+        Type type, Instant detectedAt) {
+
+    public enum Type {
+        LOW, RESTOCKED, REMOVED, REJECTED
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.productmanagement.dto;
+
+import com.example.productmanagement.entity.Product;
+
+import java.math.BigDecimal;
+
+/**
+ * Dữ liệu một dòng của trang danh sách / tìm kiếm / Dashboard, đọc bằng truy vấn
+ * "SELECT new ..." (không có description, không phải entity nên không được quản lý
+ * trong persistence context). Dùng getter kiểu JavaBean để template đọc giống Product.
+ */
+public final class ProductSummary {
+
+    private final Long id;
+    private final String productCode;
+    private final String name;
+    private final BigDecimal price;
+    private final Integer quantity;
+    private final String category;
+    private final String imagePath;
+    private final String imageVariants;
+
+    public ProductSummary(Long id, String productCode, String name, BigDecimal price, Integer quantity,
+            String category, String imagePath, String imageVariants) {
+        this.id = id;
+        this.productCode = productCode;
+        this.name = name;
+        this.price = price;
+        this.quantity = quantity;
+        this.category = category;
+        this.imagePath = imagePath;
+        this.imageVariants = imageVariants;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getProductCode() {
+        return productCode;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public BigDecimal getPrice() {
+        return price;
+    }
+
+    public Integer getQuantity() {
+        return quantity;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public String getImagePath() {
+        return imagePath;
+    }
+
+    // Ảnh dùng cho danh sách: bản "thumb" nếu đã tạo, nếu chưa thì dùng ảnh gốc
+    public String getThumbnailPath() {
+        return Product.variantPath(imagePath, imageVariants, "thumb");
+    }
+
+    @Override
+    public String toString() {
+        return "ProductSummary{" +
+                "id=" + id +
+                ", productCode='" + productCode + '\'' +
+                ", name='" + name + '\'' +
+                ", price=" + price +
+                ", quantity=" + quantity +
+                ", category='" + category + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.productmanagement.dto;
+
+/**
+ * Request điều chỉnh tồn kho: delta dương là nhập thêm, âm là xuất (bán).
+ */
+public record StockAdjustment(Integer delta) {
+}
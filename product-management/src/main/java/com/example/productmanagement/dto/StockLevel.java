@@ -0,0 +1,9 @@
+package com.example.productmanagement.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Tồn kho hiện tại của một sản phẩm (kết quả điều chỉnh tồn kho).
+ */
+public record StockLevel(Long id, String category, BigDecimal price, Integer quantity) {
+}
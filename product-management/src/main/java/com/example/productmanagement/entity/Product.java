@@ -2,19 +2,34 @@ package com.example.productmanagement.entity;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Arrays;
 
 import jakarta.validation.constraints.*;
 
+import org.hibernate.annotations.ColumnDefault;
+
 import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+import jakarta.persistence.Version;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Table;
+import jakarta.persistence.Index;
+import jakarta.persistence.UniqueConstraint;
 import jakarta.persistence.Id;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 
 @Entity
-@Table(name = "products")
+@Table(name = "products", indexes = {
+        @Index(name = "idx_products_category_price", columnList = "category, price"),
+        @Index(name = "idx_products_price", columnList = "price"),
+        @Index(name = "idx_products_quantity", columnList = "quantity"),
+        @Index(name = "idx_products_created_at", columnList = "created_at")
+}, uniqueConstraints = {
+        // Unique index cũng phục vụ tra cứu theo product_code (thay cho idx_products_product_code)
+        @UniqueConstraint(name = "uk_products_product_code", columnNames = "product_code")
+})
 public class Product {
 
     @Id
@@ -24,6 +39,7 @@ public class Product {
     @NotBlank(message = "Product code is required")
     @Size(min = 3, max = 20, message = "Product code must be 3-20 characters")
     @Pattern(regexp = "^P\\d{3,}$", message = "Product code must start with P followed by numbers (e.g., P001)")
+    @Column(name = "product_code")
     private String productCode;
 
     @NotBlank(message = "Product name is required")
@@ -40,6 +56,7 @@ public class Product {
     private Integer quantity;
 
     @NotBlank(message = "Category is required")
+    @Size(max = 255, message = "Category must be at most 255 characters")
     private String category;
 
     @Column(columnDefinition = "TEXT")
@@ -48,8 +65,21 @@ public class Product {
     @Column(name = "created_at", updatable = false)
     private LocalDateTime createdAt;
 
+    // Thời điểm sửa gần nhất (dùng cho Last-Modified); null với dữ liệu cũ chưa được sửa lần nào
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    // Optimistic locking: tăng mỗi lần cập nhật, dùng để sinh ETag
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private long version;
+
     private String imagePath;
 
+    // Các bản thu nhỏ đã tạo xong của ảnh (ví dụ "thumb,detail"); null khi chưa sẵn sàng
+    private String imageVariants;
+
     // Constructors
     public Product() {
     }
@@ -68,6 +98,12 @@ public class Product {
     @PrePersist
     protected void onCreate() {
         this.createdAt = LocalDateTime.now();
+        this.updatedAt = this.createdAt;
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        this.updatedAt = LocalDateTime.now();
     }
 
     // Getters and Setters
@@ -135,6 +171,22 @@ public class Product {
         this.createdAt = createdAt;
     }
 
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
     public String getImagePath() {
         return imagePath;
     }
@@ -143,6 +195,50 @@ public class Product {
         this.imagePath = imagePath;
     }
 
+    public String getImageVariants() {
+        return imageVariants;
+    }
+
+    public void setImageVariants(String imageVariants) {
+        this.imageVariants = imageVariants;
+    }
+
+    // Ảnh dùng cho danh sách: bản "thumb" nếu đã tạo, nếu chưa thì dùng ảnh gốc
+    public String getThumbnailPath() {
+        return variantPath("thumb");
+    }
+
+    // Ảnh dùng cho trang chi tiết / form: bản "detail" nếu đã tạo, nếu chưa thì dùng ảnh gốc
+    public String getDetailImagePath() {
+        return variantPath("detail");
+    }
+
+    private String variantPath(String variant) {
+        return variantPath(imagePath, imageVariants, variant);
+    }
+
+    /**
+     * Đường dẫn bản thu nhỏ variant nếu đã có trong danh sách variants, nếu chưa thì ảnh gốc.
+     */
+    public static String variantPath(String imagePath, String imageVariants, String variant) {
+        if (imagePath == null || imageVariants == null
+                || !Arrays.asList(imageVariants.split(",")).contains(variant)) {
+            return imagePath;
+        }
+        return variantFileName(imagePath, variant);
+    }
+
+    /**
+     * Tên file của một bản thu nhỏ: abc.jpg -> abc_thumb.jpg
+     */
+    public static String variantFileName(String imagePath, String variant) {
+        int dot = imagePath.lastIndexOf('.');
+        if (dot < 0) {
+            return imagePath + "_" + variant;
+        }
+        return imagePath.substring(0, dot) + "_" + variant + imagePath.substring(dot);
+    }
+
     @Override
     public String toString() {
         return "Product{" +
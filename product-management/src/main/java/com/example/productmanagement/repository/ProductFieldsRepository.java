@@ -0,0 +1,18 @@
+package com.example.productmanagement.repository;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Đọc một tập con các cột của Product (sparse fieldset của REST API) thành Map
+ * thuộc tính -> giá trị. Cài đặt bằng Criteria API trong ProductFieldsRepositoryImpl.
+ */
+public interface ProductFieldsRepository {
+
+    /**
+     * Chỉ SELECT các thuộc tính fields (tên thuộc tính của entity, đã được kiểm tra),
+     * sắp xếp theo id. Stream phải được đóng và dùng bên trong một transaction.
+     */
+    Stream<Map<String, Object>> streamAllFields(List<String> fields);
+}
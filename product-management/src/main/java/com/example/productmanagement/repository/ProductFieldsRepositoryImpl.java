@@ -0,0 +1,49 @@
+package com.example.productmanagement.repository;
+
+import com.example.productmanagement.entity.Product;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import org.hibernate.jpa.HibernateHints;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+class ProductFieldsRepositoryImpl implements ProductFieldsRepository {
+
+    private final EntityManager entityManager;
+
+    ProductFieldsRepositoryImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public Stream<Map<String, Object>> streamAllFields(List<String> fields) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Product> root = query.from(Product.class);
+        List<Selection<?>> selections = new ArrayList<>(fields.size());
+        for (String field : fields) {
+            selections.add(root.get(field).alias(field));
+        }
+        query.select(cb.tuple(selections.toArray(Selection[]::new))).orderBy(cb.asc(root.get("id")));
+
+        // Kết quả là Tuple (không phải entity) nên không cần tách khỏi persistence context theo lô
+        return entityManager.createQuery(query)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, 500)
+                .getResultStream()
+                .map(tuple -> {
+                    Map<String, Object> values = new LinkedHashMap<>();
+                    for (String field : fields) {
+                        values.put(field, tuple.get(field));
+                    }
+                    return values;
+                });
+    }
+}
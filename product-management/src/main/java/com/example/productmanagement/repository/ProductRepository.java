@@ -1,20 +1,34 @@
 package com.example.productmanagement.repository;
 
+import com.example.productmanagement.dto.CategoryStatistics;
+import com.example.productmanagement.dto.ProductSummary;
+import com.example.productmanagement.dto.StockLevel;
 import com.example.productmanagement.entity.Product;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
 @Repository
-public interface ProductRepository extends JpaRepository<Product, Long> {
+public interface ProductRepository extends JpaRepository<Product, Long>, JpaSpecificationExecutor<Product>,
+                ProductSummaryRepository, ProductFieldsRepository {
 
         // Spring Data JPA generates implementation automatically!
 
@@ -27,6 +41,15 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
 
         boolean existsByProductCode(String productCode);
 
+        // Import hàng loạt: kiểm tra trùng productCode cho cả lô bằng một truy vấn IN
+        @Query("SELECT p.productCode FROM Product p WHERE p.productCode IN :codes")
+        List<String> findExistingProductCodes(@Param("codes") Collection<String> codes);
+
+        List<Product> findByProductCodeIn(Collection<String> codes);
+
+        // Keyset pagination dùng findBy(Specification, ...) kế thừa từ
+        // JpaSpecificationExecutor kết hợp với ProductSpecifications.
+
         // All basic CRUD methods inherited from JpaRepository:
         // - findAll()
         // - findById(Long id)
@@ -36,16 +59,9 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
         // - existsById(Long id)
 
         // Exercise 5.1
-        @Query("SELECT p FROM Product p WHERE " +
-                        "(:name IS NULL OR p.name LIKE %:name%) AND " +
-                        "(:category IS NULL OR p.category = :category) AND " +
-                        "(:minPrice IS NULL OR p.price >= :minPrice) AND " +
-                        "(:maxPrice IS NULL OR p.price <= :maxPrice)")
-        Page<Product> searchProducts(@Param("name") String name,
-                        @Param("category") String category,
-                        @Param("minPrice") BigDecimal minPrice,
-                        @Param("maxPrice") BigDecimal maxPrice,
-                        Pageable pageable);
+        // Advanced Search dùng findAll(Specification, Pageable) với ProductSpecifications.matching(...):
+        // chỉ các điều kiện có giá trị được đưa vào câu SQL nên database chọn được index phù hợp
+        // (thay cho câu JPQL "(:x IS NULL OR ...)" trước đây).
 
         // Exercise 5.2
         @Query("SELECT DISTINCT p.category FROM Product p ORDER BY p.category")
@@ -80,4 +96,88 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
 
         // Task 8.1.5: Find recent products (Helper method for Service)
         List<Product> findTop5ByOrderByCreatedAtDesc();
+
+        // Toàn bộ số liệu Dashboard trong một truy vấn GROUP BY (thay cho N+1 countByCategory)
+        @Query("SELECT new com.example.productmanagement.dto.CategoryStatistics(" +
+                        "p.category, COUNT(p), SUM(p.price * p.quantity), SUM(p.price)) " +
+                        "FROM Product p GROUP BY p.category ORDER BY p.category")
+        List<CategoryStatistics> aggregateByCategory();
+
+        // ===================================
+        // PROJECTION CHO TRANG DANH SÁCH / DASHBOARD
+        // ===================================
+
+        // Chỉ đọc các cột hiển thị (không có description) thành ProductSummary;
+        // kết quả không phải entity nên không tốn snapshot dirty checking hay flush.
+        String SUMMARY_SELECT = "SELECT new com.example.productmanagement.dto.ProductSummary("
+                        + "p.id, p.productCode, p.name, p.price, p.quantity, p.category, p.imagePath, p.imageVariants) "
+                        + "FROM Product p ";
+
+        @Query(value = SUMMARY_SELECT, countQuery = "SELECT COUNT(p) FROM Product p")
+        Page<ProductSummary> findAllSummaries(Pageable pageable);
+
+        @Query(value = SUMMARY_SELECT + "WHERE p.category = :category",
+                        countQuery = "SELECT COUNT(p) FROM Product p WHERE p.category = :category")
+        Page<ProductSummary> findSummariesByCategory(@Param("category") String category, Pageable pageable);
+
+        @Query(value = SUMMARY_SELECT + "WHERE p.name LIKE CONCAT('%', :keyword, '%')",
+                        countQuery = "SELECT COUNT(p) FROM Product p WHERE p.name LIKE CONCAT('%', :keyword, '%')")
+        Page<ProductSummary> findSummariesByNameContaining(@Param("keyword") String keyword, Pageable pageable);
+
+        // Nạp trang kết quả từ danh sách id do ProductSearchIndex trả về
+        @Query(value = SUMMARY_SELECT + "WHERE p.id IN :ids",
+                        countQuery = "SELECT COUNT(p) FROM Product p WHERE p.id IN :ids")
+        Page<ProductSummary> findSummariesByIdIn(@Param("ids") Collection<Long> ids, Pageable pageable);
+
+        @Query(SUMMARY_SELECT + "WHERE p.id IN :ids")
+        List<ProductSummary> findSummariesByIdIn(@Param("ids") Collection<Long> ids);
+
+        @Query(SUMMARY_SELECT + "WHERE p.quantity < :threshold")
+        List<ProductSummary> findLowStockSummaries(@Param("threshold") int threshold);
+
+        @Query(SUMMARY_SELECT + "ORDER BY p.createdAt DESC")
+        List<ProductSummary> findRecentSummaries(Limit limit);
+
+        // ===================================
+        // EXPORT: ĐỌC TUẦN TỰ (CURSOR)
+        // ===================================
+
+        // Đọc từng lô theo fetch size thay vì nạp cả bảng vào List.
+        // Stream phải được đóng và dùng bên trong một transaction.
+        @QueryHints({
+                        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+                        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+        })
+        @Query("SELECT p FROM Product p ORDER BY p.id")
+        Stream<Product> streamAll();
+
+        // Dọn file upload: các imagePath (trong danh sách) còn được sản phẩm tham chiếu
+        @Query("SELECT DISTINCT p.imagePath FROM Product p WHERE p.imagePath IN :paths")
+        List<String> findReferencedImagePaths(@Param("paths") Collection<String> paths);
+
+        // Ghi nhận các bản thu nhỏ đã tạo; chỉ áp dụng nếu sản phẩm vẫn dùng đúng ảnh đó
+        // (tăng version để ETag của sản phẩm thay đổi)
+        @Modifying
+        @Query("UPDATE Product p SET p.imageVariants = :variants, p.version = p.version + 1, "
+                        + "p.updatedAt = LOCAL DATETIME WHERE p.id = :id AND p.imagePath = :imagePath")
+        int updateImageVariants(@Param("id") Long id, @Param("imagePath") String imagePath,
+                        @Param("variants") String variants);
+
+        // Điều chỉnh tồn kho nguyên tử: một lệnh UPDATE có điều kiện, không đọc-sửa-ghi.
+        // Trả về 0 nếu không có sản phẩm hoặc số lượng sẽ âm.
+        @Modifying(clearAutomatically = true)
+        @Query("UPDATE Product p SET p.quantity = p.quantity + :delta, p.version = p.version + 1, "
+                        + "p.updatedAt = LOCAL DATETIME WHERE p.id = :id AND p.quantity + :delta >= 0")
+        int adjustQuantity(@Param("id") Long id, @Param("delta") int delta);
+
+        @Query("SELECT p.version FROM Product p WHERE p.id = :id")
+        Optional<Long> findVersionById(@Param("id") Long id);
+
+        @Query("SELECT new com.example.productmanagement.dto.StockLevel(p.id, p.category, p.price, p.quantity) "
+                        + "FROM Product p WHERE p.id = :id")
+        Optional<StockLevel> findStockLevel(@Param("id") Long id);
+
+        @Query("SELECT new com.example.productmanagement.dto.StockLevel(p.id, p.category, p.price, p.quantity) "
+                        + "FROM Product p WHERE p.id IN :ids")
+        List<StockLevel> findStockLevels(@Param("ids") Collection<Long> ids);
 }
@@ -0,0 +1,55 @@
+package com.example.productmanagement.repository;
+
+import com.example.productmanagement.entity.Product;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Các điều kiện lọc Product dạng Specification. Chỉ những điều kiện có giá trị
+ * mới được ghép vào câu truy vấn.
+ */
+public final class ProductSpecifications {
+
+    private ProductSpecifications() {
+    }
+
+    public static Specification<Product> nameContains(String name) {
+        return (root, query, cb) -> cb.like(root.get("name"), "%" + name + "%");
+    }
+
+    public static Specification<Product> hasCategory(String category) {
+        return (root, query, cb) -> cb.equal(root.get("category"), category);
+    }
+
+    public static Specification<Product> priceAtLeast(BigDecimal minPrice) {
+        return (root, query, cb) -> cb.greaterThanOrEqualTo(root.get("price"), minPrice);
+    }
+
+    public static Specification<Product> priceAtMost(BigDecimal maxPrice) {
+        return (root, query, cb) -> cb.lessThanOrEqualTo(root.get("price"), maxPrice);
+    }
+
+    /**
+     * Ghép các điều kiện của Advanced Search, bỏ qua tham số null hoặc rỗng.
+     */
+    public static Specification<Product> matching(String name, String category, BigDecimal minPrice,
+            BigDecimal maxPrice) {
+        List<Specification<Product>> specs = new ArrayList<>();
+        if (name != null && !name.trim().isEmpty()) {
+            specs.add(nameContains(name.trim()));
+        }
+        if (category != null && !category.trim().isEmpty()) {
+            specs.add(hasCategory(category));
+        }
+        if (minPrice != null) {
+            specs.add(priceAtLeast(minPrice));
+        }
+        if (maxPrice != null) {
+            specs.add(priceAtMost(maxPrice));
+        }
+        return Specification.allOf(specs);
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.productmanagement.repository;
+
+import com.example.productmanagement.dto.ProductSummary;
+import com.example.productmanagement.entity.Product;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+
+/**
+ * Truy vấn projection ProductSummary theo Specification (Advanced Search).
+ * Cài đặt bằng Criteria API trong ProductSummaryRepositoryImpl.
+ */
+public interface ProductSummaryRepository {
+
+    Page<ProductSummary> findSummaries(Specification<Product> spec, Pageable pageable);
+}
@@ -0,0 +1,66 @@
+package com.example.productmanagement.repository;
+
+import com.example.productmanagement.dto.ProductSummary;
+import com.example.productmanagement.entity.Product;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.support.PageableExecutionUtils;
+
+import java.util.List;
+
+class ProductSummaryRepositoryImpl implements ProductSummaryRepository {
+
+    private final EntityManager entityManager;
+
+    ProductSummaryRepositoryImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public Page<ProductSummary> findSummaries(Specification<Product> spec, Pageable pageable) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+
+        // 1. SELECT new ProductSummary(...) với cùng điều kiện và sắp xếp như findAll(spec, pageable)
+        CriteriaQuery<ProductSummary> query = cb.createQuery(ProductSummary.class);
+        Root<Product> root = query.from(Product.class);
+        query.select(cb.construct(ProductSummary.class,
+                root.get("id"), root.get("productCode"), root.get("name"), root.get("price"),
+                root.get("quantity"), root.get("category"), root.get("imagePath"), root.get("imageVariants")));
+        Predicate predicate = spec.toPredicate(root, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.orderBy(QueryUtils.toOrders(pageable.getSort(), root, cb));
+
+        TypedQuery<ProductSummary> typedQuery = entityManager.createQuery(query);
+        if (pageable.isUnpaged()) {
+            return new PageImpl<>(typedQuery.getResultList());
+        }
+        typedQuery.setFirstResult((int) pageable.getOffset());
+        typedQuery.setMaxResults(pageable.getPageSize());
+
+        // 2. COUNT(*) chỉ chạy khi không suy ra được tổng từ trang hiện tại
+        return PageableExecutionUtils.getPage(typedQuery.getResultList(), pageable, () -> count(spec));
+    }
+
+    private long count(Specification<Product> spec) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<Product> root = query.from(Product.class);
+        query.select(cb.count(root));
+        Predicate predicate = spec.toPredicate(root, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        return entityManager.createQuery(query).getSingleResult();
+    }
+}
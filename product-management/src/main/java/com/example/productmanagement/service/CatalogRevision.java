@@ -0,0 +1,35 @@
+package com.example.productmanagement.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Số hiệu phiên bản của toàn bộ danh mục sản phẩm (dùng cho ETag / Last-Modified
+ * của các API trả về danh sách). Tăng sau mỗi lần commit có ghi sản phẩm
+ * (qua ProductChangeTracker), nên kiểm tra 304 không cần truy vấn database.
+ *
+ * ETag gồm thời điểm khởi động và số lần thay đổi: sau khi khởi động lại,
+ * ETag cũ không thể trùng với nội dung mới. Giống InventoryStatistics, giả định
+ * mọi thao tác ghi đi qua instance này.
+ */
+@Component
+public class CatalogRevision {
+
+    private final long epoch = System.currentTimeMillis();
+    private final AtomicLong revision = new AtomicLong();
+    private volatile long lastModified = epoch;
+
+    void increment() {
+        revision.incrementAndGet();
+        lastModified = System.currentTimeMillis();
+    }
+
+    public String etag() {
+        return Long.toString(epoch, 36) + "-" + revision.get();
+    }
+
+    public long lastModified() {
+        return lastModified;
+    }
+}
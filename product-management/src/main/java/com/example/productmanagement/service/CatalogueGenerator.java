@@ -0,0 +1,132 @@
+package com.example.productmanagement.service;
+
+import com.example.productmanagement.entity.Product;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.SplittableRandom;
+import java.util.function.Consumer;
+
+/**
+ * Sinh danh mục sản phẩm giả lập có phân phối gần với thực tế, xác định theo seed
+ * (cùng seed và số lượng luôn cho cùng dữ liệu, kể cả createdAt):
+ * - Category: phân phối Zipf (vài Category rất lớn, nhiều Category nhỏ)
+ * - Giá: log-normal (đa số vài chục, đuôi dài tới hàng chục nghìn)
+ * - Tồn kho: phần lớn vài chục đến vài trăm, khoảng 5% sắp hết hàng
+ * - Mô tả: độ dài log-normal (từ trống đến vài nghìn từ)
+ * - Ảnh: khoảng 70% có ảnh, lấy từ một tập tên file content-addressed dùng chung
+ *   (nhiều sản phẩm cùng ảnh như khi upload trùng); file ảnh không thực sự tồn tại.
+ */
+public class CatalogueGenerator {
+
+    public static final String[] CATEGORIES = { "Electronics", "Books", "Clothing", "Home", "Toys", "Sports",
+            "Beauty", "Garden", "Automotive", "Grocery", "Music", "Office", "Pet Supplies", "Health",
+            "Jewelry", "Shoes", "Baby", "Tools", "Furniture", "Stationery" };
+
+    public static final String[] ADJECTIVES = { "Wireless", "Smart", "Classic", "Premium", "Portable", "Ultra",
+            "Mini", "Pro", "Eco", "Deluxe", "Compact", "Digital", "Vintage", "Organic", "Ergonomic", "Foldable" };
+
+    public static final String[] NOUNS = { "Speaker", "Lamp", "Backpack", "Notebook", "Headphones", "Bottle",
+            "Chair", "Watch", "Jacket", "Keyboard", "Blender", "Camera", "Sneakers", "Tent", "Charger", "Mug" };
+
+    private static final String[] WORDS = { "durable", "lightweight", "design", "quality", "material", "daily",
+            "use", "easy", "clean", "perfect", "gift", "home", "office", "travel", "battery", "warranty", "size",
+            "color", "comfortable", "stylish", "with", "and", "for", "the", "new", "best" };
+
+    // Mốc thời gian cố định để createdAt không phụ thuộc vào ngày chạy
+    private static final LocalDateTime EPOCH = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+    private static final double ZIPF_EXPONENT = 1.1;
+
+    private final long seed;
+    private final double[] categoryCdf = new double[CATEGORIES.length];
+
+    public CatalogueGenerator(long seed) {
+        this.seed = seed;
+        double total = 0;
+        for (int i = 0; i < CATEGORIES.length; i++) {
+            total += 1 / Math.pow(i + 1, ZIPF_EXPONENT);
+            categoryCdf[i] = total;
+        }
+        for (int i = 0; i < categoryCdf.length; i++) {
+            categoryCdf[i] /= total;
+        }
+    }
+
+    /**
+     * Sinh lần lượt count sản phẩm (chưa có id). productCode là P + số thứ tự, duy nhất trong một lần sinh.
+     */
+    public void generate(int count, Consumer<Product> consumer) {
+        SplittableRandom random = new SplittableRandom(seed);
+        String[] images = imagePool(random.split(), Math.max(1, count / 10));
+        for (int i = 0; i < count; i++) {
+            Product product = new Product(
+                    String.format("P%07d", i + 1),
+                    ADJECTIVES[random.nextInt(ADJECTIVES.length)] + " " + NOUNS[random.nextInt(NOUNS.length)]
+                            + " " + (100 + random.nextInt(9900)),
+                    price(random),
+                    quantity(random),
+                    category(random),
+                    description(random));
+            LocalDateTime createdAt = EPOCH.minusMinutes(random.nextLong(2L * 365 * 24 * 60));
+            product.setCreatedAt(createdAt);
+            product.setUpdatedAt(createdAt);
+            if (random.nextDouble() < 0.7) {
+                product.setImagePath(images[random.nextInt(images.length)]);
+            }
+            consumer.accept(product);
+        }
+    }
+
+    private String category(SplittableRandom random) {
+        double u = random.nextDouble();
+        for (int i = 0; i < categoryCdf.length; i++) {
+            if (u <= categoryCdf[i]) {
+                return CATEGORIES[i];
+            }
+        }
+        return CATEGORIES[CATEGORIES.length - 1];
+    }
+
+    // Log-normal quanh 30, làm tròn kiểu giá bán lẻ (x.99), giới hạn theo validation của Product
+    private BigDecimal price(SplittableRandom random) {
+        double value = Math.exp(Math.log(30) + 1.2 * random.nextGaussian());
+        value = Math.min(Math.max(value, 1), 999_999);
+        return BigDecimal.valueOf(Math.floor(value) + 0.99).setScale(2, RoundingMode.HALF_UP);
+    }
+
+    private int quantity(SplittableRandom random) {
+        if (random.nextDouble() < 0.05) {
+            return random.nextInt(10); // sắp hết hàng
+        }
+        return (int) Math.min(10_000, 10 + random.nextExponential() * 150);
+    }
+
+    private String description(SplittableRandom random) {
+        if (random.nextDouble() < 0.1) {
+            return null;
+        }
+        int words = (int) Math.min(5_000, Math.exp(Math.log(40) + 1.0 * random.nextGaussian()));
+        StringBuilder text = new StringBuilder(words * 7);
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                text.append(' ');
+            }
+            text.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return text.toString();
+    }
+
+    private static String[] imagePool(SplittableRandom random, int size) {
+        String[] images = new String[size];
+        byte[] hash = new byte[32];
+        for (int i = 0; i < size; i++) {
+            random.nextBytes(hash);
+            String hex = HexFormat.of().formatHex(hash);
+            images[i] = hex.substring(0, 2) + "/" + hex.substring(2, 4) + "/" + hex + (i % 4 == 0 ? ".png" : ".jpg");
+        }
+        return images;
+    }
+}
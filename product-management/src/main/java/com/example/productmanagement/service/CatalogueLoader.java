@@ -0,0 +1,102 @@
+package com.example.productmanagement.service;
+
+import com.example.productmanagement.entity.Product;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Nạp danh mục giả lập (CatalogueGenerator) khi khởi động, bật bằng catalogue.generate.size.
+ * Chạy trước ApplicationReadyEvent nên search index và thống kê được dựng trên dữ liệu này.
+ *
+ * Bảng trống thì sinh dữ liệu; đã có đúng số dòng thì bỏ qua; còn lại chỉ sinh lại khi
+ * catalogue.generate.replace=true (xóa toàn bộ sản phẩm cũ).
+ */
+@Component
+@ConditionalOnProperty(name = "catalogue.generate.size")
+class CatalogueLoader implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(CatalogueLoader.class);
+
+    private static final String INSERT_SQL = "INSERT INTO products "
+            + "(product_code, name, price, quantity, category, description, created_at, updated_at, image_path, version) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, 0)";
+
+    // Số dòng mỗi transaction (mỗi lô là một JDBC batch; MySQL gộp thành INSERT nhiều dòng)
+    private static final int BATCH_SIZE = 5_000;
+
+    private final int size;
+    private final long seed;
+    private final boolean replace;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    CatalogueLoader(@Value("${catalogue.generate.size}") int size,
+            @Value("${catalogue.generate.seed:42}") long seed,
+            @Value("${catalogue.generate.replace:false}") boolean replace,
+            JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate) {
+        this.size = size;
+        this.seed = seed;
+        this.replace = replace;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        Long existing = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM products", Long.class);
+        if (existing != null && existing == size) {
+            log.info("Catalogue already has {} products, skipping generation", size);
+            return;
+        }
+        if (existing != null && existing > 0) {
+            if (!replace) {
+                log.warn("Products table has {} rows; set catalogue.generate.replace=true to regenerate {} products",
+                        existing, size);
+                return;
+            }
+            jdbcTemplate.update("DELETE FROM products");
+        }
+
+        long start = System.currentTimeMillis();
+        List<Product> batch = new ArrayList<>(BATCH_SIZE);
+        new CatalogueGenerator(seed).generate(size, product -> {
+            batch.add(product);
+            if (batch.size() == BATCH_SIZE) {
+                insert(batch);
+                batch.clear();
+            }
+        });
+        insert(batch);
+        log.info("Generated {} products (seed {}) in {} ms", size, seed, System.currentTimeMillis() - start);
+    }
+
+    private void insert(List<Product> products) {
+        if (products.isEmpty()) {
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(INSERT_SQL, products,
+                products.size(), (ps, product) -> {
+                    Timestamp createdAt = Timestamp.valueOf(product.getCreatedAt());
+                    ps.setString(1, product.getProductCode());
+                    ps.setString(2, product.getName());
+                    ps.setBigDecimal(3, product.getPrice());
+                    ps.setInt(4, product.getQuantity());
+                    ps.setString(5, product.getCategory());
+                    ps.setString(6, product.getDescription());
+                    ps.setTimestamp(7, createdAt);
+                    ps.setTimestamp(8, createdAt);
+                    ps.setString(9, product.getImagePath());
+                }));
+    }
+}
@@ -1,19 +1,81 @@
 package com.example.productmanagement.service;
 
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.multipart.MultipartFile;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.UUID;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
 
+/**
+ * Lưu file upload theo nội dung (content-addressed): tên file là SHA-256 của nội dung,
+ * đặt trong thư mục phân mảnh uploads/ab/cd/. Cùng một ảnh upload nhiều lần chỉ được lưu
+ * một lần; tên file không bao giờ đổi nội dung nên có thể cache vĩnh viễn.
+ * File không còn sản phẩm nào tham chiếu được dọn bởi {@link UploadGarbageCollector}.
+ */
 @Service
 public class FileStorageService {
 
-    private final Path fileStorageLocation = Paths.get("uploads").toAbsolutePath().normalize();
+    // Tên file nội dung: <sha256>.<ext>
+    static final Pattern CONTENT_FILE = Pattern.compile("^[0-9a-f]{64}(\\.[a-z0-9]{1,5})?$");
 
-    public FileStorageService() throws IOException {
+    // File tạm đang nhận upload (chưa kiểm tra định dạng), nằm cùng thư mục uploads nhưng không được phục vụ
+    public static final String TEMP_FILE_PREFIX = ".upload-";
+
+    // Buffer dùng lại cho việc ghi file: số lượng cố định, bộ nhớ không tăng theo số upload
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int BUFFER_POOL_SIZE = 16;
+    // Số byte đầu file cần để nhận diện định dạng ảnh
+    private static final int SIGNATURE_LENGTH = 12;
+    private static final int LOCK_STRIPES = 64;
+
+    private final Path fileStorageLocation;
+    // Khóa theo hash (chia sọc): upload trùng nội dung và UploadGarbageCollector không xen nhau trên cùng một file
+    private final ReentrantLock[] contentLocks = new ReentrantLock[LOCK_STRIPES];
+    private final long maxFileSize;
+    private final Set<String> allowedTypes;
+    private final BlockingQueue<ByteBuffer> bufferPool = new ArrayBlockingQueue<>(BUFFER_POOL_SIZE);
+    private final MeterRegistry meterRegistry;
+    private final DistributionSummary uploadSize;
+
+    public FileStorageService(@Value("${uploads.max-file-size:10MB}") DataSize maxFileSize,
+            @Value("${uploads.allowed-types:jpg,png,gif,webp,bmp}") String[] allowedTypes,
+            @Value("${uploads.dir:uploads}") String uploadDir,
+            MeterRegistry meterRegistry) throws IOException {
+        this.fileStorageLocation = Paths.get(uploadDir).toAbsolutePath().normalize();
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            contentLocks[i] = new ReentrantLock();
+        }
+        this.maxFileSize = maxFileSize.toBytes();
+        this.allowedTypes = Set.copyOf(Arrays.asList(allowedTypes));
+        this.meterRegistry = meterRegistry;
+        this.uploadSize = DistributionSummary.builder("uploads.size")
+                .description("Size of accepted uploads")
+                .baseUnit("bytes")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
         // Đảm bảo thư mục 'uploads' tồn tại
         try {
             Files.createDirectories(this.fileStorageLocation);
@@ -23,19 +85,191 @@ public class FileStorageService {
     }
 
     public String storeFile(MultipartFile file) throws IOException {
-        // Tạo tên file duy nhất để tránh trùng lặp
-        String originalFilename = file.getOriginalFilename();
-        String extension = "";
-        if (originalFilename != null && originalFilename.contains(".")) {
-            extension = originalFilename.substring(originalFilename.lastIndexOf("."));
+        try (InputStream in = file.getInputStream()) {
+            return store(in);
+        }
+    }
+
+    /**
+     * Ghi nội dung từ stream (ví dụ thân request) vào kho trong một lần đọc: tính SHA-256,
+     * kiểm tra định dạng và kích thước ngay khi dữ liệu đến, ghi qua FileChannel ra file tạm
+     * rồi đổi tên nguyên tử vào uploads/ab/cd/<sha256>.<ext>.
+     * Thời gian được ghi vào uploads.duration theo kết quả (stored, deduplicated, too_large, rejected, error).
+     */
+    public String store(InputStream in) throws IOException {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "error";
+        try {
+            StoredFile stored = write(in);
+            outcome = stored.deduplicated() ? "deduplicated" : "stored";
+            uploadSize.record(stored.size());
+            return stored.fileName();
+        } catch (UploadRejectedException e) {
+            outcome = e.isTooLarge() ? "too_large" : "rejected";
+            throw e;
+        } finally {
+            sample.stop(Timer.builder("uploads.duration")
+                    .description("Time to receive, check and store an upload")
+                    .tag("outcome", outcome)
+                    .publishPercentiles(0.5, 0.95, 0.99)
+                    .register(meterRegistry));
+        }
+    }
+
+    private record StoredFile(String fileName, long size, boolean deduplicated) {
+    }
+
+    private StoredFile write(InputStream in) throws IOException {
+        MessageDigest digest = sha256();
+        Path temp = Files.createTempFile(this.fileStorageLocation, TEMP_FILE_PREFIX, ".tmp");
+        ByteBuffer buffer = acquireBuffer();
+        try {
+            // 1. Ghi ra file tạm, đồng thời tính SHA-256 và nhận diện định dạng trong cùng một lần đọc
+            String type = null;
+            byte[] signature = new byte[SIGNATURE_LENGTH];
+            int signatureLength = 0;
+            long total = 0;
+            try (ReadableByteChannel source = Channels.newChannel(in);
+                    FileChannel target = FileChannel.open(temp, StandardOpenOption.WRITE,
+                            StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (true) {
+                    buffer.clear();
+                    int read = source.read(buffer);
+                    if (read < 0) {
+                        break;
+                    }
+                    total += read;
+                    if (total > maxFileSize) {
+                        throw new UploadRejectedException("File is larger than the limit of " + maxFileSize
+                                + " bytes", true);
+                    }
+                    buffer.flip();
+                    if (type == null && signatureLength < SIGNATURE_LENGTH) {
+                        int count = Math.min(SIGNATURE_LENGTH - signatureLength, buffer.remaining());
+                        buffer.get(buffer.position(), signature, signatureLength, count);
+                        signatureLength += count;
+                        if (signatureLength == SIGNATURE_LENGTH) {
+                            type = checkType(signature, signatureLength);
+                        }
+                    }
+                    digest.update(buffer.duplicate());
+                    while (buffer.hasRemaining()) {
+                        target.write(buffer);
+                    }
+                }
+            }
+            if (total == 0) {
+                throw new UploadRejectedException("File is empty", false);
+            }
+            if (type == null) {
+                type = checkType(signature, signatureLength);
+            }
+            String hash = HexFormat.of().formatHex(digest.digest());
+
+            // 2. Đặt vào thư mục phân mảnh ab/cd/ để mỗi thư mục luôn nhỏ
+            String fileName = hash.substring(0, 2) + "/" + hash.substring(2, 4) + "/" + hash + "." + type;
+            Path target = resolve(fileName);
+            boolean deduplicated;
+            ReentrantLock lock = contentLock(target);
+            lock.lock();
+            try {
+                deduplicated = Files.exists(target);
+                if (deduplicated) {
+                    // Đã có cùng nội dung: làm mới thời gian để GC không xóa trước khi sản phẩm được lưu
+                    Files.setLastModifiedTime(target, FileTime.fromMillis(System.currentTimeMillis()));
+                } else {
+                    Files.createDirectories(target.getParent());
+                    Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            // Trả về tên file (đường dẫn tương đối) để lưu vào Database
+            return new StoredFile(fileName, total, deduplicated);
+        } finally {
+            releaseBuffer(buffer);
+            // File tạm còn lại nếu bị từ chối / lỗi giữa chừng
+            Files.deleteIfExists(temp);
         }
-        String fileName = UUID.randomUUID().toString() + extension;
+    }
 
-        // Lưu file vào thư mục
-        Path targetLocation = this.fileStorageLocation.resolve(fileName);
-        Files.copy(file.getInputStream(), targetLocation);
+    public long getMaxFileSize() {
+        return maxFileSize;
+    }
 
-        // Trả về tên file để lưu vào Database
-        return fileName;
+    // Đường dẫn tuyệt đối của một file trong thư mục uploads (chặn path traversal)
+    public Path resolve(String fileName) {
+        Path path = this.fileStorageLocation.resolve(fileName).normalize();
+        if (!path.startsWith(this.fileStorageLocation)) {
+            throw new IllegalArgumentException("Invalid file name: " + fileName);
+        }
+        return path;
+    }
+
+    // Đường dẫn tương đối (dạng lưu trong Database) của một file trong thư mục uploads
+    public String relativeName(Path path) {
+        return this.fileStorageLocation.relativize(path.toAbsolutePath().normalize()).toString().replace('\\', '/');
+    }
+
+    public Path getStorageLocation() {
+        return fileStorageLocation;
+    }
+
+    /**
+     * Khóa của một file nội dung (theo hash trong tên file). UploadGarbageCollector giữ khóa này khi
+     * kiểm tra lại và xóa file, nên không xóa mất file mà một upload trùng nội dung vừa trả về.
+     */
+    ReentrantLock contentLock(Path file) {
+        String name = file.getFileName().toString();
+        String hash = name.contains(".") ? name.substring(0, name.indexOf('.')) : name;
+        return contentLocks[Math.floorMod(hash.hashCode(), LOCK_STRIPES)];
+    }
+
+    // Nhận diện định dạng ảnh theo magic bytes (không tin vào tên file / Content-Type của client)
+    private String checkType(byte[] signature, int length) {
+        String type = detectType(signature, length);
+        if (type == null || !allowedTypes.contains(type)) {
+            throw new UploadRejectedException("Unsupported file type (allowed: " + allowedTypes + ")", false);
+        }
+        return type;
+    }
+
+    static String detectType(byte[] b, int length) {
+        if (length >= 3 && (b[0] & 0xFF) == 0xFF && (b[1] & 0xFF) == 0xD8 && (b[2] & 0xFF) == 0xFF) {
+            return "jpg";
+        }
+        if (length >= 8 && (b[0] & 0xFF) == 0x89 && b[1] == 'P' && b[2] == 'N' && b[3] == 'G') {
+            return "png";
+        }
+        if (length >= 6 && b[0] == 'G' && b[1] == 'I' && b[2] == 'F' && b[3] == '8') {
+            return "gif";
+        }
+        if (length >= 12 && b[0] == 'R' && b[1] == 'I' && b[2] == 'F' && b[3] == 'F'
+                && b[8] == 'W' && b[9] == 'E' && b[10] == 'B' && b[11] == 'P') {
+            return "webp";
+        }
+        if (length >= 2 && b[0] == 'B' && b[1] == 'M') {
+            return "bmp";
+        }
+        return null;
+    }
+
+    private ByteBuffer acquireBuffer() {
+        ByteBuffer buffer = bufferPool.poll();
+        return buffer != null ? buffer : ByteBuffer.allocateDirect(BUFFER_SIZE);
+    }
+
+    private void releaseBuffer(ByteBuffer buffer) {
+        buffer.clear();
+        bufferPool.offer(buffer); // Pool đầy thì bỏ buffer thừa
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,157 @@
+package com.example.productmanagement.service;
+
+import com.example.productmanagement.entity.Product;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tạo các bản thu nhỏ của ảnh sản phẩm trên một pool worker giới hạn, không chặn request upload.
+ * Khi xong, tên các bản đã tạo được ghi vào Product.imageVariants; trong lúc chờ,
+ * giao diện dùng ảnh gốc.
+ */
+@Service
+public class ImageProcessingService {
+
+    private static final Logger log = LoggerFactory.getLogger(ImageProcessingService.class);
+
+    // Tên bản thu nhỏ -> cạnh dài tối đa (px)
+    private static final Map<String, Integer> VARIANTS = new LinkedHashMap<>();
+    static {
+        VARIANTS.put("thumb", 100);
+        VARIANTS.put("detail", 600);
+    }
+
+    private static final Set<String> WRITABLE_FORMATS = Set.of("jpg", "jpeg", "png", "gif", "bmp");
+
+    private final FileStorageService fileStorageService;
+    private final ProductService productService;
+    private final ThreadPoolExecutor executor;
+
+    public ImageProcessingService(FileStorageService fileStorageService, ProductService productService,
+            @Value("${image.processing.pool-size:2}") int poolSize,
+            @Value("${image.processing.queue-capacity:100}") int queueCapacity,
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.fileStorageService = fileStorageService;
+        this.productService = productService;
+        // Pool vẫn giới hạn số ảnh xử lý đồng thời (resize tốn CPU); với virtual threads,
+        // thời gian chờ I/O (đọc/ghi file, UPDATE) không giữ platform thread
+        ThreadFactory threadFactory;
+        if (virtualThreads) {
+            threadFactory = Thread.ofVirtual().name("image-worker-", 1).factory();
+        } else {
+            AtomicInteger threadNumber = new AtomicInteger();
+            threadFactory = runnable -> {
+                Thread thread = new Thread(runnable, "image-worker-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            };
+        }
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threadFactory);
+    }
+
+    /**
+     * Đưa việc tạo bản thu nhỏ vào hàng đợi. Nếu hàng đợi đầy, ảnh gốc tiếp tục được dùng.
+     */
+    public void createVariantsAsync(Long productId, String fileName) {
+        try {
+            executor.execute(() -> createVariants(productId, fileName));
+        } catch (RejectedExecutionException e) {
+            log.warn("Image processing queue is full, skipping variants for {}", fileName);
+        }
+    }
+
+    void createVariants(Long productId, String fileName) {
+        try {
+            String format = extension(fileName);
+            if (!WRITABLE_FORMATS.contains(format)) {
+                return;
+            }
+            BufferedImage original = ImageIO.read(fileStorageService.resolve(fileName).toFile());
+            if (original == null) {
+                return; // Định dạng ImageIO không đọc được
+            }
+            List<String> created = new ArrayList<>();
+            for (Map.Entry<String, Integer> variant : VARIANTS.entrySet()) {
+                int maxSize = variant.getValue();
+                if (Math.max(original.getWidth(), original.getHeight()) <= maxSize) {
+                    continue; // Ảnh gốc đã đủ nhỏ
+                }
+                Path target = fileStorageService.resolve(Product.variantFileName(fileName, variant.getKey()));
+                writeAtomically(resize(original, maxSize, format), format, target);
+                created.add(variant.getKey());
+            }
+            if (!created.isEmpty()) {
+                productService.recordImageVariants(productId, fileName, String.join(",", created));
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not create image variants for {}", fileName, e);
+        }
+    }
+
+    private static BufferedImage resize(BufferedImage original, int maxSize, String format) {
+        double scale = (double) maxSize / Math.max(original.getWidth(), original.getHeight());
+        int width = Math.max(1, (int) Math.round(original.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(original.getHeight() * scale));
+        // JPEG/BMP không có kênh alpha
+        int type = format.equals("png") || format.equals("gif")
+                ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        BufferedImage resized = new BufferedImage(width, height, type);
+        Graphics2D graphics = resized.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(original, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return resized;
+    }
+
+    // Ghi ra file tạm rồi đổi tên để không bao giờ phục vụ một file ghi dở
+    private static void writeAtomically(BufferedImage image, String format, Path target) throws IOException {
+        Path temp = Files.createTempFile(target.getParent(), ".variant-", ".tmp");
+        try {
+            if (!ImageIO.write(image, format.equals("jpeg") ? "jpg" : format, temp.toFile())) {
+                throw new IOException("No ImageIO writer for format " + format);
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static String extension(String fileName) {
+        int dot = fileName.lastIndexOf('.');
+        return dot < 0 ? "" : fileName.substring(dot + 1).toLowerCase(Locale.ROOT);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
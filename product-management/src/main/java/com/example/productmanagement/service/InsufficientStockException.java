@@ -0,0 +1,19 @@
+package com.example.productmanagement.service;
+
+/**
+ * Điều chỉnh tồn kho bị từ chối vì số lượng sẽ âm (bán vượt tồn kho).
+ */
+public class InsufficientStockException extends IllegalStateException {
+
+    private final int available;
+
+    public InsufficientStockException(Long productId, int requested, int available) {
+        super("Insufficient stock for product " + productId + ": requested " + requested
+                + ", available " + available);
+        this.available = available;
+    }
+
+    public int getAvailable() {
+        return available;
+    }
+}
@@ -0,0 +1,205 @@
+package com.example.productmanagement.service;
+
+import com.example.productmanagement.dto.CategoryStatistics;
+import com.example.productmanagement.dto.DashboardStatistics;
+import com.example.productmanagement.entity.Product;
+import com.example.productmanagement.repository.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Thống kê kho hàng giữ trong bộ nhớ cho Dashboard.
+ * Được nạp một lần khi khởi động, cập nhật tăng dần sau mỗi lần lưu/xóa sản phẩm
+ * (sau khi transaction commit) và đối soát lại với database theo chu kỳ.
+ * Giá được lưu dưới dạng cent (long) để cộng dồn bằng LongAdder, không cần khóa.
+ */
+@Service
+public class InventoryStatistics {
+
+    private static final Logger log = LoggerFactory.getLogger(InventoryStatistics.class);
+
+    private final ProductRepository productRepository;
+
+    // Thay thế nguyên map khi đối soát; null nghĩa là chưa được nạp
+    private volatile Map<String, CategoryCounters> categories;
+    // Thay đổi đến trong lúc đối soát đang chạy (null khi không đối soát): được áp dụng lại lên map mới
+    private volatile Queue<ProductState[]> changesDuringReconcile;
+    // Read lock: áp dụng một thay đổi (vào map hiện tại và hàng đợi). Write lock: mở hàng đợi / thay map
+    private final ReentrantReadWriteLock swapLock = new ReentrantReadWriteLock();
+    private final ReentrantLock reconcileLock = new ReentrantLock();
+
+    public InventoryStatistics(ProductRepository productRepository) {
+        this.productRepository = productRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void seed() {
+        reconcile();
+    }
+
+    /**
+     * Tính lại toàn bộ số liệu từ database, sửa các sai lệch (ví dụ do hai request
+     * cập nhật cùng một sản phẩm đồng thời). Các thay đổi được commit trong lúc truy vấn chạy
+     * được giữ lại và áp dụng lên kết quả mới trước khi thay map, nên không bị mất. (Thay đổi commit
+     * ngay trước khi truy vấn đọc nhưng được ghi nhận sau đó có thể bị tính hai lần; lần đối soát sau sửa lại.)
+     */
+    @Scheduled(fixedDelayString = "${inventory.stats.reconcile-interval:PT5M}",
+            initialDelayString = "${inventory.stats.reconcile-interval:PT5M}")
+    public void reconcile() {
+        reconcileLock.lock();
+        try {
+            Queue<ProductState[]> changes = new ConcurrentLinkedQueue<>();
+            swapLock.writeLock().lock();
+            try {
+                changesDuringReconcile = changes;
+            } finally {
+                swapLock.writeLock().unlock();
+            }
+
+            Map<String, CategoryCounters> fresh = new ConcurrentHashMap<>();
+            try {
+                for (CategoryStatistics stat : productRepository.aggregateByCategory()) {
+                    CategoryCounters counters = new CategoryCounters();
+                    counters.count.add(stat.productCount());
+                    counters.valueCents.add(toCents(stat.totalValue()));
+                    counters.priceCents.add(toCents(stat.priceSum()));
+                    fresh.put(stat.category(), counters);
+                }
+            } catch (RuntimeException e) {
+                changesDuringReconcile = null;
+                throw e;
+            }
+
+            int replayed;
+            swapLock.writeLock().lock();
+            try {
+                replayed = changes.size();
+                for (ProductState[] change : changes) {
+                    apply(fresh, change[0], change[1]);
+                }
+                categories = fresh;
+                changesDuringReconcile = null;
+            } finally {
+                swapLock.writeLock().unlock();
+            }
+            log.debug("Inventory statistics reconciled: {} categories, {} concurrent changes replayed",
+                    fresh.size(), replayed);
+        } finally {
+            reconcileLock.unlock();
+        }
+    }
+
+    public boolean isReady() {
+        return categories != null;
+    }
+
+    /**
+     * Ảnh chụp số liệu hiện tại, chi phí chỉ phụ thuộc số Category.
+     */
+    public DashboardStatistics snapshot() {
+        Map<String, CategoryCounters> current = categories;
+        List<CategoryStatistics> stats = new ArrayList<>();
+        if (current != null) {
+            current.forEach((category, counters) -> {
+                long count = counters.count.sum();
+                if (count > 0) {
+                    stats.add(new CategoryStatistics(category, count,
+                            fromCents(counters.valueCents.sum()), fromCents(counters.priceCents.sum())));
+                }
+            });
+        }
+        stats.sort((a, b) -> a.category().compareTo(b.category()));
+        return DashboardStatistics.of(stats);
+    }
+
+    /**
+     * Ghi nhận thay đổi của một sản phẩm. before/after có thể null (tạo mới/xóa).
+     * Nếu đang trong transaction, số liệu chỉ được cập nhật sau khi commit.
+     */
+    public void recordChange(ProductState before, ProductState after) {
+        TransactionHooks.afterCommit(() -> apply(before, after));
+    }
+
+    private void apply(ProductState before, ProductState after) {
+        swapLock.readLock().lock();
+        try {
+            Queue<ProductState[]> changes = changesDuringReconcile;
+            if (changes != null) {
+                changes.add(new ProductState[] {before, after});
+            }
+            Map<String, CategoryCounters> current = categories;
+            if (current != null) { // Chưa nạp: lần đối soát đầu tiên sẽ áp dụng lại thay đổi này
+                apply(current, before, after);
+            }
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    private static void apply(Map<String, CategoryCounters> current, ProductState before, ProductState after) {
+        if (before != null) {
+            before.addTo(current, -1);
+        }
+        if (after != null) {
+            after.addTo(current, 1);
+        }
+    }
+
+    private static long toCents(BigDecimal amount) {
+        if (amount == null) {
+            return 0;
+        }
+        return amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValue();
+    }
+
+    private static BigDecimal fromCents(long cents) {
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    private static final class CategoryCounters {
+        final LongAdder count = new LongAdder();
+        final LongAdder valueCents = new LongAdder();
+        final LongAdder priceCents = new LongAdder();
+    }
+
+    /**
+     * Các giá trị của Product ảnh hưởng tới thống kê, chụp lại trước khi entity bị thay đổi.
+     */
+    public record ProductState(String category, long priceCents, int quantity) {
+
+        public static ProductState of(Product product) {
+            if (product == null || product.getCategory() == null) {
+                return null;
+            }
+            int quantity = product.getQuantity() != null ? product.getQuantity() : 0;
+            return new ProductState(product.getCategory(), toCents(product.getPrice()), quantity);
+        }
+
+        public static ProductState of(String category, BigDecimal price, int quantity) {
+            return category == null ? null : new ProductState(category, toCents(price), quantity);
+        }
+
+        void addTo(Map<String, CategoryCounters> categories, int sign) {
+            CategoryCounters counters = categories.computeIfAbsent(category, key -> new CategoryCounters());
+            counters.count.add(sign);
+            counters.priceCents.add(sign * priceCents);
+            counters.valueCents.add(sign * priceCents * quantity);
+        }
+    }
+}
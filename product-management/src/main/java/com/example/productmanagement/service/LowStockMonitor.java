@@ -0,0 +1,114 @@
+package com.example.productmanagement.service;
+
+import com.example.productmanagement.dto.LowStockAlert;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ngưỡng Low Stock theo Category và phát hiện tồn kho vượt qua ngưỡng.
+ * Được gọi từ ProductChangeTracker cho mỗi lần lưu sản phẩm / điều chỉnh tồn kho, nên chi phí
+ * tỷ lệ với số thay đổi (không quét bảng). Sự kiện LowStockAlert được phát sau khi commit.
+ */
+@Component
+public class LowStockMonitor {
+
+    private final int defaultThreshold;
+    private final Map<String, Integer> thresholds;
+    private final int maxThreshold;
+    private final ApplicationEventPublisher eventPublisher;
+    private final AtomicLong sequence = new AtomicLong();
+
+    public LowStockMonitor(@Value("${inventory.low-stock.default-threshold:10}") int defaultThreshold,
+            @Value("${inventory.low-stock.thresholds:}") String[] thresholds,
+            ApplicationEventPublisher eventPublisher) {
+        this.defaultThreshold = defaultThreshold;
+        this.thresholds = parseThresholds(thresholds);
+        this.maxThreshold = Math.max(defaultThreshold,
+                this.thresholds.values().stream().mapToInt(Integer::intValue).max().orElse(0));
+        this.eventPublisher = eventPublisher;
+    }
+
+    // "Electronics:5" -> Electronics = 5
+    private static Map<String, Integer> parseThresholds(String[] entries) {
+        Map<String, Integer> parsed = new HashMap<>();
+        for (String entry : entries) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            int colon = entry.lastIndexOf(':');
+            if (colon <= 0) {
+                throw new IllegalArgumentException("Invalid low-stock threshold (expected Category:threshold): " + entry);
+            }
+            parsed.put(entry.substring(0, colon).trim(), Integer.valueOf(entry.substring(colon + 1).trim()));
+        }
+        return Map.copyOf(parsed);
+    }
+
+    public int getDefaultThreshold() {
+        return defaultThreshold;
+    }
+
+    /**
+     * Ngưỡng lớn nhất trong mọi Category: quantity &lt; maxThreshold là tập ứng viên khi truy vấn.
+     */
+    public int getMaxThreshold() {
+        return maxThreshold;
+    }
+
+    public int thresholdFor(String category) {
+        return thresholds.getOrDefault(category, defaultThreshold);
+    }
+
+    public boolean isLow(String category, Integer quantity) {
+        return quantity != null && quantity < thresholdFor(category);
+    }
+
+    /**
+     * So sánh trạng thái trước/sau của một sản phẩm (before null nếu tạo mới) và phát
+     * LowStockAlert sau khi commit nếu sản phẩm vừa rơi xuống dưới hoặc vượt lên trên ngưỡng.
+     */
+    void check(Long productId, InventoryStatistics.ProductState before, InventoryStatistics.ProductState after) {
+        if (productId == null || after == null) {
+            return;
+        }
+        boolean wasLow = before != null && before.quantity() < thresholdFor(before.category());
+        int threshold = thresholdFor(after.category());
+        boolean low = after.quantity() < threshold;
+        if (wasLow == low) {
+            return;
+        }
+        publishAfterCommit(productId, after, threshold, low ? LowStockAlert.Type.LOW : LowStockAlert.Type.RESTOCKED);
+    }
+
+    /**
+     * Sản phẩm bị xóa: nếu đang Low Stock thì phát REMOVED sau khi commit để màn hình kho bỏ nó đi.
+     */
+    void removed(Long productId, InventoryStatistics.ProductState before) {
+        if (productId == null || before == null) {
+            return;
+        }
+        int threshold = thresholdFor(before.category());
+        if (before.quantity() < threshold) {
+            publishAfterCommit(productId, before, threshold, LowStockAlert.Type.REMOVED);
+        }
+    }
+
+    /**
+     * Delta write-behind bị từ chối khi flush: luôn phát REJECTED (sau khi commit) để người vận hành đối soát.
+     */
+    void rejected(Long productId, InventoryStatistics.ProductState current) {
+        publishAfterCommit(productId, current, thresholdFor(current.category()), LowStockAlert.Type.REJECTED);
+    }
+
+    private void publishAfterCommit(Long productId, InventoryStatistics.ProductState state, int threshold,
+            LowStockAlert.Type type) {
+        TransactionHooks.afterCommit(() -> eventPublisher.publishEvent(new LowStockAlert(sequence.incrementAndGet(),
+                productId, state.category(), state.quantity(), threshold, type, Instant.now())));
+    }
+}
@@ -0,0 +1,308 @@
+package com.example.productmanagement.service;
+
+import com.example.productmanagement.dto.BatchItemResult;
+import com.example.productmanagement.dto.BatchItemResult.Status;
+import com.example.productmanagement.entity.Product;
+import com.example.productmanagement.repository.ProductRepository;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Tạo / cập nhật / upsert / xóa sản phẩm hàng loạt. Request được chia thành các lô,
+ * mỗi lô chạy trong một transaction với số truy vấn cố định (không phụ thuộc số phần tử):
+ * một truy vấn đọc theo lô, lệnh ghi theo batch (JDBC batch / Hibernate jdbc.batch_size).
+ * Lô lỗi database bị rollback rồi được chạy lại từng phần tử (mỗi phần tử một transaction) để chỉ
+ * phần tử gây lỗi có trạng thái FAILED / CONFLICT; các lô khác vẫn chạy.
+ */
+@Service
+public class ProductBatchService {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductBatchService.class);
+
+    public static final int MAX_ITEMS = 10_000;
+    private static final int CHUNK_SIZE = 500;
+
+    private final TransactionTemplate transactionTemplate;
+    private final ProductRepository productRepository;
+    private final ProductBulkWriter bulkWriter;
+    private final ProductChangeTracker changeTracker;
+    private final Validator validator;
+
+    public ProductBatchService(TransactionTemplate transactionTemplate, ProductRepository productRepository,
+            ProductBulkWriter bulkWriter, ProductChangeTracker changeTracker, Validator validator) {
+        this.transactionTemplate = transactionTemplate;
+        this.productRepository = productRepository;
+        this.bulkWriter = bulkWriter;
+        this.changeTracker = changeTracker;
+        this.validator = validator;
+    }
+
+    public List<BatchItemResult> create(List<Product> products) {
+        return inChunks(products, (chunk, offset, results) -> {
+            insertNew(validate(chunk, offset, results, false), chunk, offset, results);
+        });
+    }
+
+    public List<BatchItemResult> update(List<Product> products) {
+        return inChunks(products, (chunk, offset, results) -> {
+            List<Integer> candidates = validate(chunk, offset, results, true);
+            Map<Long, Product> existing = new HashMap<>();
+            for (Product product : productRepository.findAllById(
+                    candidates.stream().map(i -> chunk.get(i).getId()).toList())) {
+                existing.put(product.getId(), product);
+            }
+
+            // productCode mới không được trùng với sản phẩm khác
+            Set<String> changedCodes = new HashSet<>();
+            for (int i : candidates) {
+                Product product = chunk.get(i);
+                Product current = existing.get(product.getId());
+                if (current != null && !product.getProductCode().equals(current.getProductCode())) {
+                    changedCodes.add(product.getProductCode());
+                }
+            }
+            Set<String> takenCodes = changedCodes.isEmpty() ? Set.of()
+                    : new HashSet<>(productRepository.findExistingProductCodes(changedCodes));
+
+            for (int i : candidates) {
+                Product product = chunk.get(i);
+                int index = offset + i;
+                Product current = existing.get(product.getId());
+                if (current == null) {
+                    results[index] = BatchItemResult.failed(index, product.getId(), product.getProductCode(),
+                            Status.NOT_FOUND, "Product not found");
+                } else if (product.getVersion() > 0 && product.getVersion() != current.getVersion()) {
+                    // Client gửi version (optimistic locking): chỉ cập nhật nếu khớp bản trong database
+                    results[index] = BatchItemResult.failed(index, product.getId(), product.getProductCode(),
+                            Status.CONFLICT, "Product has been modified (version " + current.getVersion() + ")");
+                } else if (takenCodes.contains(product.getProductCode())) {
+                    results[index] = BatchItemResult.failed(index, product.getId(), product.getProductCode(),
+                            Status.CONFLICT, "Product code already exists");
+                } else {
+                    applyUpdate(current, product);
+                    results[index] = BatchItemResult.of(index, current.getId(), current.getProductCode(),
+                            Status.UPDATED);
+                }
+            }
+            // Các lệnh UPDATE được Hibernate gom batch khi flush lúc commit
+        });
+    }
+
+    /**
+     * Upsert theo productCode: cập nhật nếu mã đã tồn tại, ngược lại tạo mới.
+     */
+    public List<BatchItemResult> upsert(List<Product> products) {
+        return inChunks(products, (chunk, offset, results) -> {
+            List<Integer> candidates = validate(chunk, offset, results, false);
+            Map<String, Product> existing = new HashMap<>();
+            for (Product product : productRepository.findByProductCodeIn(
+                    candidates.stream().map(i -> chunk.get(i).getProductCode()).toList())) {
+                existing.put(product.getProductCode(), product);
+            }
+
+            List<Integer> toCreate = new ArrayList<>();
+            for (int i : candidates) {
+                Product product = chunk.get(i);
+                int index = offset + i;
+                Product current = existing.get(product.getProductCode());
+                if (current == null) {
+                    toCreate.add(i);
+                } else {
+                    applyUpdate(current, product);
+                    results[index] = BatchItemResult.of(index, current.getId(), current.getProductCode(),
+                            Status.UPDATED);
+                }
+            }
+            insertNew(toCreate, chunk, offset, results);
+        });
+    }
+
+    public List<BatchItemResult> delete(List<Long> ids) {
+        return inChunks(ids, (chunk, offset, results) -> {
+            Map<Long, Product> existing = new HashMap<>();
+            for (Product product : productRepository.findAllById(
+                    chunk.stream().filter(id -> id != null).toList())) {
+                existing.put(product.getId(), product);
+            }
+            Set<Long> seenIds = new HashSet<>();
+            for (int i = 0; i < chunk.size(); i++) {
+                Long id = chunk.get(i);
+                Product product = existing.get(id);
+                if (id != null && !seenIds.add(id)) {
+                    results[offset + i] = BatchItemResult.failed(offset + i, id, null, Status.CONFLICT,
+                            "Duplicate product id in batch");
+                } else if (product == null) {
+                    results[offset + i] = BatchItemResult.failed(offset + i, id, null, Status.NOT_FOUND,
+                            "Product not found");
+                } else {
+                    changeTracker.deleted(InventoryStatistics.ProductState.of(product), id);
+                    results[offset + i] = BatchItemResult.of(offset + i, id, product.getProductCode(),
+                            Status.DELETED);
+                }
+            }
+            if (!existing.isEmpty()) {
+                // Một lệnh DELETE ... WHERE id IN (...) cho cả lô
+                productRepository.deleteAllByIdInBatch(existing.keySet());
+            }
+        });
+    }
+
+    // ===================================
+    // HELPERS
+    // ===================================
+
+    @FunctionalInterface
+    private interface ChunkHandler<T> {
+        void handle(List<T> chunk, int offset, BatchItemResult[] results);
+    }
+
+    private <T> List<BatchItemResult> inChunks(List<T> items, ChunkHandler<T> handler) {
+        if (items == null || items.isEmpty()) {
+            return List.of();
+        }
+        if (items.size() > MAX_ITEMS) {
+            throw new IllegalArgumentException("Too many items in batch (max " + MAX_ITEMS + ")");
+        }
+        BatchItemResult[] results = new BatchItemResult[items.size()];
+        for (int from = 0; from < items.size(); from += CHUNK_SIZE) {
+            int offset = from;
+            List<T> chunk = items.subList(from, Math.min(from + CHUNK_SIZE, items.size()));
+            try {
+                transactionTemplate.executeWithoutResult(status -> handler.handle(chunk, offset, results));
+            } catch (DataAccessException | TransactionException e) {
+                // Lô đã rollback: chạy lại từng phần tử để chỉ báo lỗi đúng phần tử
+                log.warn("Batch chunk at offset {} ({} items) rolled back, retrying item by item: {}", offset,
+                        chunk.size(), causeOf(e));
+                for (int i = 0; i < chunk.size(); i++) {
+                    int index = offset + i;
+                    // Lỗi của chính phần tử hoặc trùng trong lô (INVALID / CONFLICT) không phụ thuộc transaction:
+                    // giữ nguyên để phần tử trùng không được ghi khi chạy riêng
+                    if (results[index] != null && (results[index].status() == Status.INVALID
+                            || results[index].status() == Status.CONFLICT)) {
+                        continue;
+                    }
+                    retryItem(chunk.get(i), index, handler, results);
+                }
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+    // Một phần tử trong transaction riêng (kết quả do handler ghi vào results[index])
+    private <T> void retryItem(T item, int index, ChunkHandler<T> handler, BatchItemResult[] results) {
+        Long id = item instanceof Product product ? product.getId() : (Long) item;
+        String code = item instanceof Product product ? product.getProductCode() : null;
+        try {
+            transactionTemplate.executeWithoutResult(status -> handler.handle(List.of(item), index, results));
+        } catch (DuplicateKeyException e) {
+            results[index] = BatchItemResult.failed(index, id, code, Status.CONFLICT, "Product code already exists");
+        } catch (DataAccessException | TransactionException e) {
+            results[index] = BatchItemResult.failed(index, id, code, Status.FAILED, causeOf(e));
+        }
+    }
+
+    private static String causeOf(RuntimeException e) {
+        return e instanceof DataAccessException dataAccess
+                ? dataAccess.getMostSpecificCause().getMessage() : e.getMessage();
+    }
+
+    /**
+     * Kiểm tra bean-validation, trùng productCode và (khi cập nhật theo id) trùng id trong cùng lô, trước
+     * khi áp dụng phần tử nào; trả về vị trí (trong lô) của các phần tử hợp lệ.
+     */
+    private List<Integer> validate(List<Product> chunk, int offset, BatchItemResult[] results, boolean requireId) {
+        List<Integer> valid = new ArrayList<>();
+        Set<String> seenCodes = new HashSet<>();
+        Set<Long> seenIds = new HashSet<>();
+        for (int i = 0; i < chunk.size(); i++) {
+            Product product = chunk.get(i);
+            int index = offset + i;
+            if (product == null) {
+                results[index] = BatchItemResult.failed(index, null, null, Status.INVALID, "Item is null");
+                continue;
+            }
+            if (requireId && product.getId() == null) {
+                results[index] = BatchItemResult.failed(index, null, product.getProductCode(), Status.INVALID,
+                        "Product id is required");
+                continue;
+            }
+            Set<ConstraintViolation<Product>> violations = validator.validate(product);
+            if (!violations.isEmpty()) {
+                results[index] = BatchItemResult.failed(index, product.getId(), product.getProductCode(),
+                        Status.INVALID, violations.iterator().next().getMessage());
+                continue;
+            }
+            if (requireId && !seenIds.add(product.getId())) {
+                results[index] = BatchItemResult.failed(index, product.getId(), product.getProductCode(),
+                        Status.CONFLICT, "Duplicate product id in batch");
+                continue;
+            }
+            if (!seenCodes.add(product.getProductCode())) {
+                results[index] = BatchItemResult.failed(index, product.getId(), product.getProductCode(),
+                        Status.CONFLICT, "Duplicate product code in batch");
+                continue;
+            }
+            valid.add(i);
+        }
+        return valid;
+    }
+
+    private void insertNew(List<Integer> candidates, List<Product> chunk, int offset, BatchItemResult[] results) {
+        if (candidates.isEmpty()) {
+            return;
+        }
+        Set<String> existing = new HashSet<>(productRepository.findExistingProductCodes(
+                candidates.stream().map(i -> chunk.get(i).getProductCode()).toList()));
+        List<Integer> accepted = new ArrayList<>();
+        for (int i : candidates) {
+            Product product = chunk.get(i);
+            if (existing.contains(product.getProductCode())) {
+                results[offset + i] = BatchItemResult.failed(offset + i, null, product.getProductCode(),
+                        Status.CONFLICT, "Product code already exists");
+            } else {
+                accepted.add(i);
+            }
+        }
+        Map<String, Long> ids = new HashMap<>();
+        for (Product inserted : bulkWriter.insert(accepted.stream().map(chunk::get).toList())) {
+            ids.put(inserted.getProductCode(), inserted.getId());
+        }
+        for (int i : accepted) {
+            String code = chunk.get(i).getProductCode();
+            results[offset + i] = BatchItemResult.of(offset + i, ids.get(code), code, Status.CREATED);
+        }
+    }
+
+    /**
+     * Chép các trường sửa được sang entity đang được quản lý (giữ nguyên id, createdAt;
+     * imagePath chỉ đổi khi request có giá trị).
+     */
+    private void applyUpdate(Product current, Product source) {
+        InventoryStatistics.ProductState before = InventoryStatistics.ProductState.of(current);
+        current.setProductCode(source.getProductCode());
+        current.setName(source.getName());
+        current.setPrice(source.getPrice());
+        current.setQuantity(source.getQuantity());
+        current.setCategory(source.getCategory());
+        current.setDescription(source.getDescription());
+        if (source.getImagePath() != null) {
+            current.setImagePath(source.getImagePath());
+        }
+        changeTracker.saved(before, current);
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.productmanagement.service;
+
+import com.example.productmanagement.entity.Product;
+import com.example.productmanagement.repository.ProductRepository;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Ghi nhiều sản phẩm mới bằng JDBC batch insert.
+ *
+ * Product dùng GenerationType.IDENTITY nên Hibernate không thể batch lệnh INSERT;
+ * ở đây id vẫn do database sinh (auto increment) nhưng INSERT đi theo batch JDBC
+ * (với MySQL cần rewriteBatchedStatements=true để gộp thành INSERT nhiều dòng).
+ * Phải được gọi bên trong một transaction.
+ */
+@Component
+class ProductBulkWriter {
+
+    private static final String INSERT_SQL = "INSERT INTO products "
+            + "(product_code, name, price, quantity, category, description, created_at, updated_at, image_path, version) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, 0)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ProductRepository productRepository;
+    private final ProductChangeTracker changeTracker;
+
+    ProductBulkWriter(JdbcTemplate jdbcTemplate, ProductRepository productRepository,
+            ProductChangeTracker changeTracker) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.productRepository = productRepository;
+        this.changeTracker = changeTracker;
+    }
+
+    /**
+     * Chèn các sản phẩm (productCode chưa tồn tại) và trả về các entity đã có id.
+     */
+    List<Product> insert(List<Product> products) {
+        if (products.isEmpty()) {
+            return List.of();
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(INSERT_SQL, products, products.size(), (ps, product) -> {
+            ps.setString(1, product.getProductCode());
+            ps.setString(2, product.getName());
+            ps.setBigDecimal(3, product.getPrice());
+            ps.setInt(4, product.getQuantity());
+            ps.setString(5, product.getCategory());
+            ps.setString(6, product.getDescription());
+            ps.setTimestamp(7, now);
+            ps.setTimestamp(8, now);
+            ps.setString(9, product.getImagePath());
+        });
+
+        // Đọc lại các dòng vừa ghi để có id
+        List<Product> inserted = productRepository.findByProductCodeIn(
+                products.stream().map(Product::getProductCode).toList());
+        for (Product product : inserted) {
+            changeTracker.saved(null, product);
+        }
+        return inserted;
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.productmanagement.service;
+
+import com.example.productmanagement.config.CacheConfig;
+import com.example.productmanagement.entity.Product;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
+
+/**
+ * Cache read-through cho Product theo id (cache "products", Caffeine).
+ *
+ * Lưu bản chụp bất biến (Snapshot) thay vì entity: mỗi lần đọc trả về một Product mới,
+ * nên người gọi sửa entity không làm hỏng bản trong cache và không có entity dùng chung giữa các thread.
+ *
+ * Chống ghi đè bản cũ: một người đọc nạp bản cũ, người ghi commit và evict, rồi người đọc mới
+ * put bản cũ vào. Mỗi lần invalidate tăng một bộ đếm (chia theo id vào STRIPES ô); người đọc ghi
+ * nhận bộ đếm trước khi đọc database, put xong thì kiểm tra lại và tự evict nếu bộ đếm đã đổi.
+ */
+@Component
+class ProductCache {
+
+    private static final int STRIPES = 1024;
+
+    private final Cache cache;
+    private final AtomicLongArray invalidations = new AtomicLongArray(STRIPES);
+
+    ProductCache(CacheManager cacheManager) {
+        this.cache = cacheManager.getCache(CacheConfig.PRODUCTS_CACHE);
+    }
+
+    /**
+     * Đọc từ cache, nếu không có thì nạp bằng loader và lưu bản chụp. Luôn trả về một Product riêng.
+     */
+    Optional<Product> get(Long id, Function<Long, Optional<Product>> loader) {
+        if (cache == null || id == null) {
+            return loader.apply(id);
+        }
+        Snapshot cached = cache.get(id, Snapshot.class);
+        if (cached != null) {
+            return Optional.of(cached.toProduct());
+        }
+        int stripe = stripe(id);
+        long before = invalidations.get(stripe);
+        Optional<Product> loaded = loader.apply(id);
+        loaded.ifPresent(product -> {
+            cache.put(id, Snapshot.of(product));
+            // Có lần ghi commit trong lúc đọc: bản vừa put có thể đã cũ
+            if (invalidations.get(stripe) != before) {
+                cache.evict(id);
+            }
+        });
+        return loaded;
+    }
+
+    /**
+     * Gọi sau khi commit: bản trong cache (và mọi lần nạp đang chạy) không còn hợp lệ.
+     */
+    void invalidate(Long id) {
+        if (cache == null || id == null) {
+            return;
+        }
+        invalidations.incrementAndGet(stripe(id));
+        cache.evict(id);
+    }
+
+    private static int stripe(Long id) {
+        return Math.floorMod(Long.hashCode(id), STRIPES);
+    }
+
+    private record Snapshot(Long id, String productCode, String name, BigDecimal price, Integer quantity,
+            String category, String description, LocalDateTime createdAt, LocalDateTime updatedAt, long version,
+            String imagePath, String imageVariants) {
+
+        static Snapshot of(Product product) {
+            return new Snapshot(product.getId(), product.getProductCode(), product.getName(), product.getPrice(),
+                    product.getQuantity(), product.getCategory(), product.getDescription(), product.getCreatedAt(),
+                    product.getUpdatedAt(), product.getVersion(), product.getImagePath(), product.getImageVariants());
+        }
+
+        Product toProduct() {
+            Product product = new Product(productCode, name, price, quantity, category, description);
+            product.setId(id);
+            product.setCreatedAt(createdAt);
+            product.setUpdatedAt(updatedAt);
+            product.setVersion(version);
+            product.setImagePath(imagePath);
+            product.setImageVariants(imageVariants);
+            return product;
+        }
+    }
+}
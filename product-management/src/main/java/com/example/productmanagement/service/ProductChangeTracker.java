@@ -0,0 +1,100 @@
+package com.example.productmanagement.service;
+
+import com.example.productmanagement.dto.StockLevel;
+import com.example.productmanagement.entity.Product;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+/**
+ * Điểm chung để đồng bộ các cấu trúc trong bộ nhớ (thống kê kho, cache Category,
+ * search index, cache entity theo id, cảnh báo Low Stock) sau mỗi lần ghi sản phẩm. Mọi cập nhật chỉ áp dụng sau khi commit.
+ */
+@Component
+class ProductChangeTracker {
+
+    private final InventoryStatistics inventoryStatistics;
+    private final ReferenceDataCache referenceDataCache;
+    private final ProductSearchIndex searchIndex;
+    private final CatalogRevision catalogRevision;
+    private final LowStockMonitor lowStockMonitor;
+    private final ProductCache productCache;
+    private final StockWriteBehindBuffer stockBuffer;
+
+    // StockWriteBehindBuffer cũng dùng tracker khi flush nên được inject lazy
+    ProductChangeTracker(InventoryStatistics inventoryStatistics, ReferenceDataCache referenceDataCache,
+            ProductSearchIndex searchIndex, CatalogRevision catalogRevision, LowStockMonitor lowStockMonitor,
+            ProductCache productCache, @Lazy StockWriteBehindBuffer stockBuffer) {
+        this.inventoryStatistics = inventoryStatistics;
+        this.referenceDataCache = referenceDataCache;
+        this.searchIndex = searchIndex;
+        this.catalogRevision = catalogRevision;
+        this.lowStockMonitor = lowStockMonitor;
+        this.productCache = productCache;
+        this.stockBuffer = stockBuffer;
+    }
+
+    /**
+     * Ghi nhận sản phẩm vừa được lưu. before là trạng thái trước khi sửa (null nếu tạo mới).
+     */
+    void saved(InventoryStatistics.ProductState before, Product saved) {
+        InventoryStatistics.ProductState after = InventoryStatistics.ProductState.of(saved);
+        inventoryStatistics.recordChange(before, after);
+        lowStockMonitor.check(saved.getId(), before, after);
+        // Danh sách Category chỉ có thể đổi khi thêm mới hoặc đổi Category
+        if (before == null || after == null || !before.category().equals(after.category())) {
+            referenceDataCache.invalidateAfterCommit();
+        }
+        ProductSearchIndex.Document document = ProductSearchIndex.Document.of(saved);
+        TransactionHooks.afterCommit(() -> searchIndex.index(document));
+        if (before != null) {
+            // Số lượng vừa được ghi tuyệt đối: bộ đệm write-behind lấy lại mốc từ database
+            TransactionHooks.afterCommit(() -> stockBuffer.overwritten(saved.getId()));
+        }
+        changed(saved.getId());
+    }
+
+    void deleted(InventoryStatistics.ProductState before, Long id) {
+        inventoryStatistics.recordChange(before, null);
+        lowStockMonitor.removed(id, before);
+        referenceDataCache.invalidateAfterCommit();
+        TransactionHooks.afterCommit(() -> searchIndex.remove(id));
+        TransactionHooks.afterCommit(() -> stockBuffer.overwritten(id));
+        changed(id);
+    }
+
+    /**
+     * Ghi nhận tồn kho vừa được điều chỉnh (after là trạng thái sau khi cộng delta).
+     */
+    void stockAdjusted(StockLevel after, int delta) {
+        int quantity = after.quantity() != null ? after.quantity() : 0;
+        InventoryStatistics.ProductState previous =
+                InventoryStatistics.ProductState.of(after.category(), after.price(), quantity - delta);
+        InventoryStatistics.ProductState current =
+                InventoryStatistics.ProductState.of(after.category(), after.price(), quantity);
+        inventoryStatistics.recordChange(previous, current);
+        lowStockMonitor.check(after.id(), previous, current);
+        // Giá trị quantity trong search index dùng để sắp xếp kết quả search
+        TransactionHooks.afterCommit(() -> searchIndex.updateQuantity(after.id(), quantity));
+        changed(after.id());
+    }
+
+    /**
+     * Delta write-behind bị database từ chối khi flush (current là tồn kho trong database): phát cảnh báo.
+     */
+    void stockRejected(StockLevel current) {
+        int quantity = current.quantity() != null ? current.quantity() : 0;
+        lowStockMonitor.rejected(current.id(),
+                InventoryStatistics.ProductState.of(current.category(), current.price(), quantity));
+    }
+
+    /**
+     * Sau khi commit: xóa sản phẩm khỏi cache theo id (lần đọc sau sẽ nạp lại từ
+     * database) và tăng phiên bản danh mục.
+     */
+    void changed(Long id) {
+        TransactionHooks.afterCommit(() -> {
+            productCache.invalidate(id);
+            catalogRevision.increment();
+        });
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.productmanagement.service;
+
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+
+import java.math.BigDecimal;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Continuation token cho phân trang keyset (seek). Token là chuỗi Base64 (URL-safe)
+ * chứa hướng sắp xếp, giá trị của cột sắp xếp và id của dòng cuối cùng đã trả về.
+ */
+public final class ProductCursor {
+
+    // Các cột được phép sắp xếp khi dùng keyset, kèm cách đọc lại giá trị từ token.
+    // Chỉ các cột bắt buộc (NOT NULL): điều kiện seek "col > ?" bỏ sót các dòng có giá trị null,
+    // nên createdAt (null với dữ liệu cũ) và description không dùng được cho keyset.
+    private static final Map<String, Function<String, Object>> SORTABLE = Map.of(
+            "id", Long::valueOf,
+            "name", value -> value,
+            "productCode", value -> value,
+            "category", value -> value,
+            "price", BigDecimal::new,
+            "quantity", Integer::valueOf);
+
+    // Khóa lưu hướng sắp xếp trong token (không phải cột)
+    private static final String DIRECTION_KEY = "dir";
+
+    private ProductCursor() {
+    }
+
+    /**
+     * Tạo Sort cho keyset: cột sortBy (nếu hợp lệ) và luôn có id làm khóa phụ để thứ tự là duy nhất.
+     */
+    public static Sort sortFor(String sortBy, String sortDir) {
+        Sort.Direction direction = "desc".equalsIgnoreCase(sortDir) ? Sort.Direction.DESC : Sort.Direction.ASC;
+        if (sortBy == null || sortBy.isEmpty() || "id".equals(sortBy)) {
+            return Sort.by(direction, "id");
+        }
+        if (!SORTABLE.containsKey(sortBy)) {
+            throw new IllegalArgumentException("Unsupported sort column: " + sortBy);
+        }
+        return Sort.by(direction, sortBy).and(Sort.by(direction, "id"));
+    }
+
+    /**
+     * Giải mã token cho thứ tự sort. Token rỗng/null nghĩa là bắt đầu từ đầu danh sách; token sinh ra
+     * với cột hoặc hướng sắp xếp khác cũng bắt đầu lại từ đầu. Token hỏng ném IllegalArgumentException.
+     */
+    public static KeysetScrollPosition decode(String token, Sort sort) {
+        if (token == null || token.isEmpty()) {
+            return ScrollPosition.keyset();
+        }
+        String raw;
+        try {
+            raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+        String direction = null;
+        Map<String, Object> keys = new LinkedHashMap<>();
+        for (String pair : raw.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq <= 0) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            String property = pair.substring(0, eq);
+            String value = URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+            if (DIRECTION_KEY.equals(property)) {
+                direction = value;
+                continue;
+            }
+            Function<String, Object> parser = SORTABLE.get(property);
+            if (parser == null) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            keys.put(property, parser.apply(value));
+        }
+        if (keys.isEmpty() || keys.containsValue(null)) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+
+        Set<String> sortProperties = new HashSet<>();
+        sort.forEach(order -> sortProperties.add(order.getProperty()));
+        if (!directionOf(sort).equals(direction) || !keys.keySet().equals(sortProperties)) {
+            return ScrollPosition.keyset();
+        }
+        return ScrollPosition.forward(keys);
+    }
+
+    /**
+     * Token trỏ tới trang kế tiếp của window (đọc với thứ tự sort), hoặc null nếu đã hết dữ liệu.
+     */
+    public static String nextCursor(Window<?> window, Sort sort) {
+        if (window.isEmpty() || !window.hasNext()) {
+            return null;
+        }
+        KeysetScrollPosition position = (KeysetScrollPosition) window.positionAt(window.size() - 1);
+        StringBuilder raw = new StringBuilder(DIRECTION_KEY).append('=').append(directionOf(sort));
+        for (Map.Entry<String, Object> key : position.getKeys().entrySet()) {
+            raw.append('&');
+            Object value = key.getValue();
+            String text = value instanceof BigDecimal decimal ? decimal.toPlainString() : String.valueOf(value);
+            raw.append(key.getKey()).append('=').append(URLEncoder.encode(text, StandardCharsets.UTF_8));
+        }
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(raw.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String directionOf(Sort sort) {
+        return sort.stream().findFirst().map(order -> order.getDirection().isDescending() ? "desc" : "asc")
+                .orElse("asc");
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.productmanagement.service;
+
+import com.example.productmanagement.entity.Product;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Sparse fieldset cho REST API: tham số fields=id,price,quantity chọn các thuộc tính
+ * được đọc từ database và serialize. Thứ tự thuộc tính trong kết quả theo thứ tự yêu cầu.
+ */
+public final class ProductFields {
+
+    // Các thuộc tính (cột) được phép chọn, kèm cách đọc từ entity
+    private static final Map<String, Function<Product, Object>> SELECTABLE = Map.ofEntries(
+            Map.entry("id", Product::getId),
+            Map.entry("productCode", Product::getProductCode),
+            Map.entry("name", Product::getName),
+            Map.entry("price", Product::getPrice),
+            Map.entry("quantity", Product::getQuantity),
+            Map.entry("category", Product::getCategory),
+            Map.entry("description", Product::getDescription),
+            Map.entry("createdAt", Product::getCreatedAt),
+            Map.entry("updatedAt", Product::getUpdatedAt),
+            Map.entry("version", Product::getVersion),
+            Map.entry("imagePath", Product::getImagePath),
+            Map.entry("imageVariants", Product::getImageVariants));
+
+    private ProductFields() {
+    }
+
+    /**
+     * Tách danh sách thuộc tính (phân cách bởi dấu phẩy, bỏ trùng). Trả về null nếu fields
+     * null/rỗng (nghĩa là toàn bộ Product); ném IllegalArgumentException nếu có thuộc tính lạ.
+     */
+    public static List<String> parse(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return null;
+        }
+        List<String> selected = new ArrayList<>();
+        for (String field : fields.split(",")) {
+            String name = field.trim();
+            if (name.isEmpty() || selected.contains(name)) {
+                continue;
+            }
+            if (!SELECTABLE.containsKey(name)) {
+                throw new IllegalArgumentException("Unknown field: " + name);
+            }
+            selected.add(name);
+        }
+        if (selected.isEmpty()) {
+            throw new IllegalArgumentException("fields must name at least one field");
+        }
+        return List.copyOf(selected);
+    }
+
+    /**
+     * Chỉ giữ các thuộc tính đã chọn của một entity (dùng khi entity đã có sẵn, ví dụ từ cache).
+     */
+    public static Map<String, Object> select(Product product, List<String> fields) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        for (String field : fields) {
+            values.put(field, SELECTABLE.get(field).apply(product));
+        }
+        return values;
+    }
+}
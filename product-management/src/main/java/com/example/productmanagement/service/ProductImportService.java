@@ -0,0 +1,363 @@
+package com.example.productmanagement.service;
+
+import com.example.productmanagement.dto.ImportReport;
+import com.example.productmanagement.entity.Product;
+import com.example.productmanagement.repository.ProductRepository;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Import sản phẩm hàng loạt từ file CSV hoặc XLSX. File được đọc từng dòng (XLSX dùng
+ * SAX event API), mỗi dòng được kiểm tra bằng các ràng buộc bean-validation của Product,
+ * trùng productCode được phát hiện theo lô và dữ liệu được ghi bằng JDBC batch insert
+ * (xem {@link ProductBulkWriter}). Lô lỗi khi ghi database được ghi lại từng dòng để báo
+ * đúng dòng hỏng; unique constraint trên product_code chặn trùng do import chạy đồng thời.
+ */
+@Service
+public class ProductImportService {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductImportService.class);
+
+    // Số dòng mỗi transaction / mỗi lệnh batch
+    private static final int CHUNK_SIZE = 1000;
+    // Giới hạn số lỗi trả về để báo cáo không phình to khi file hỏng hàng loạt
+    private static final int MAX_REPORTED_ERRORS = 1000;
+
+    private final TransactionTemplate transactionTemplate;
+    private final ProductRepository productRepository;
+    private final ProductBulkWriter bulkWriter;
+    private final Validator validator;
+
+    public ProductImportService(TransactionTemplate transactionTemplate, ProductRepository productRepository,
+            ProductBulkWriter bulkWriter, Validator validator) {
+        this.transactionTemplate = transactionTemplate;
+        this.productRepository = productRepository;
+        this.bulkWriter = bulkWriter;
+        this.validator = validator;
+    }
+
+    public ImportReport importFile(MultipartFile file) throws IOException {
+        String filename = file.getOriginalFilename() != null
+                ? file.getOriginalFilename().toLowerCase(Locale.ROOT) : "";
+        ImportJob job = new ImportJob();
+        if (filename.endsWith(".csv")) {
+            try (Reader reader = new InputStreamReader(file.getInputStream(), StandardCharsets.UTF_8)) {
+                readCsv(new BufferedReader(reader), job::accept);
+            }
+        } else if (filename.endsWith(".xlsx")) {
+            // OPCPackage đọc từ file thay vì InputStream để không nạp toàn bộ file zip vào bộ nhớ
+            Path temp = Files.createTempFile("product-import-", ".xlsx");
+            try {
+                file.transferTo(temp);
+                readXlsx(temp, job::accept);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } else {
+            throw new IllegalArgumentException("Unsupported file type (expected .csv or .xlsx): "
+                    + file.getOriginalFilename());
+        }
+        return job.finish();
+    }
+
+    // ===================================
+    // ĐỌC FILE
+    // ===================================
+
+    /**
+     * Đọc CSV (RFC 4180): hỗ trợ trường trong dấu nháy kép, dấu phẩy và xuống dòng bên trong trường.
+     */
+    static void readCsv(BufferedReader reader, Consumer<String[]> rows) throws IOException {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        String line = reader.readLine();
+        // Excel lưu CSV UTF-8 kèm BOM: bỏ đi để ô header đầu tiên không thành "\uFEFFcode"
+        if (line != null && line.startsWith("\uFEFF")) {
+            line = line.substring(1);
+        }
+        for (; line != null; line = reader.readLine()) {
+            for (int i = 0; i < line.length(); i++) {
+                char c = line.charAt(i);
+                if (quoted) {
+                    if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else if (c == '"') {
+                        quoted = false;
+                    } else {
+                        field.append(c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else {
+                    field.append(c);
+                }
+            }
+            if (quoted) {
+                field.append('\n'); // Trường còn mở nháy: tiếp tục ở dòng sau
+                continue;
+            }
+            fields.add(field.toString());
+            field.setLength(0);
+            if (!(fields.size() == 1 && fields.get(0).isBlank())) {
+                rows.accept(fields.toArray(new String[0]));
+            }
+            fields.clear();
+        }
+    }
+
+    /**
+     * Đọc sheet đầu tiên của file XLSX bằng SAX, không dựng workbook trong bộ nhớ.
+     */
+    static void readXlsx(Path path, Consumer<String[]> rows) throws IOException {
+        try (OPCPackage pkg = OPCPackage.open(path.toFile(), PackageAccess.READ)) {
+            XSSFReader xssfReader = new XSSFReader(pkg);
+            ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg);
+            Iterator<InputStream> sheets = xssfReader.getSheetsData();
+            if (!sheets.hasNext()) {
+                return;
+            }
+            try (InputStream sheet = sheets.next()) {
+                XMLReader parser = XMLHelper.newXMLReader();
+                parser.setContentHandler(new XSSFSheetXMLHandler(xssfReader.getStylesTable(), strings,
+                        new RowCollector(rows), new DataFormatter(), false));
+                parser.parse(new InputSource(sheet));
+            }
+        } catch (OpenXML4JException | SAXException | ParserConfigurationException e) {
+            throw new IOException("Could not read XLSX file", e);
+        }
+    }
+
+    private static final class RowCollector implements XSSFSheetXMLHandler.SheetContentsHandler {
+
+        private final Consumer<String[]> rows;
+        private final List<String> cells = new ArrayList<>();
+
+        RowCollector(Consumer<String[]> rows) {
+            this.rows = rows;
+        }
+
+        @Override
+        public void startRow(int rowNum) {
+            cells.clear();
+        }
+
+        @Override
+        public void endRow(int rowNum) {
+            if (!cells.isEmpty()) {
+                rows.accept(cells.toArray(new String[0]));
+            }
+        }
+
+        @Override
+        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+            int column = cellReference != null ? new CellReference(cellReference).getCol() : cells.size();
+            while (cells.size() < column) {
+                cells.add("");
+            }
+            cells.add(formattedValue);
+        }
+    }
+
+    // ===================================
+    // XỬ LÝ DÒNG + GHI THEO LÔ
+    // ===================================
+
+    private final class ImportJob {
+
+        private final long start = System.nanoTime();
+        private final List<ImportReport.RowError> errors = new ArrayList<>();
+        // Chỉ giữ mã của lô hiện tại; trùng với lô trước được phát hiện qua database (đã ghi)
+        private final Set<String> chunkCodes = new HashSet<>();
+        private final List<Product> chunk = new ArrayList<>(CHUNK_SIZE);
+        private final List<Long> chunkRows = new ArrayList<>(CHUNK_SIZE);
+        private Map<String, Integer> columns;
+        private long totalRows;
+        private long importedRows;
+        private long failedRows;
+
+        void accept(String[] cells) {
+            if (columns == null) {
+                columns = mapHeader(cells);
+                return;
+            }
+            long rowNumber = ++totalRows;
+            Product product;
+            try {
+                product = toProduct(cells);
+            } catch (RuntimeException e) {
+                fail(rowNumber, value(cells, "code"), "Invalid value: " + e.getMessage());
+                return;
+            }
+            Set<ConstraintViolation<Product>> violations = validator.validate(product);
+            if (!violations.isEmpty()) {
+                fail(rowNumber, product.getProductCode(), violations.iterator().next().getMessage());
+                return;
+            }
+            if (!chunkCodes.add(product.getProductCode())) {
+                fail(rowNumber, product.getProductCode(), "Duplicate product code in file");
+                return;
+            }
+            chunk.add(product);
+            chunkRows.add(rowNumber);
+            if (chunk.size() >= CHUNK_SIZE) {
+                flush();
+            }
+        }
+
+        ImportReport finish() {
+            flush();
+            long durationMillis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+            double rowsPerSecond = totalRows * 1000.0 / durationMillis;
+            log.info("Imported {} of {} rows in {} ms ({} rows/s)", importedRows, totalRows, durationMillis,
+                    Math.round(rowsPerSecond));
+            return new ImportReport(totalRows, importedRows, failedRows, durationMillis, rowsPerSecond, errors);
+        }
+
+        private void flush() {
+            if (chunk.isEmpty()) {
+                return;
+            }
+            try {
+                insert(chunk, chunkRows);
+            } catch (DataAccessException e) {
+                // Cả lô đã rollback: ghi lại từng dòng (mỗi dòng một transaction) để chỉ báo lỗi đúng dòng
+                log.warn("Import chunk of {} rows failed, retrying row by row: {}", chunk.size(),
+                        e.getMostSpecificCause().getMessage());
+                for (int i = 0; i < chunk.size(); i++) {
+                    Product product = chunk.get(i);
+                    try {
+                        insert(List.of(product), List.of(chunkRows.get(i)));
+                    } catch (DuplicateKeyException duplicate) {
+                        fail(chunkRows.get(i), product.getProductCode(), "Product code already exists");
+                    } catch (DataAccessException rowError) {
+                        fail(chunkRows.get(i), product.getProductCode(),
+                                "Database error: " + rowError.getMostSpecificCause().getMessage());
+                    }
+                }
+            } finally {
+                chunk.clear();
+                chunkRows.clear();
+                chunkCodes.clear();
+            }
+        }
+
+        // Ghi một lô trong một transaction; bộ đếm và lỗi chỉ được ghi nhận sau khi commit
+        private void insert(List<Product> products, List<Long> rows) {
+            List<ImportReport.RowError> rejected = new ArrayList<>();
+            Integer inserted = transactionTemplate.execute(status -> insertChunk(products, rows, rejected));
+            importedRows += inserted != null ? inserted : 0;
+            for (ImportReport.RowError error : rejected) {
+                fail(error.row(), error.productCode(), error.message());
+            }
+        }
+
+        private int insertChunk(List<Product> products, List<Long> rows, List<ImportReport.RowError> rejected) {
+            // Một truy vấn IN cho cả lô thay vì existsByProductCode từng dòng
+            List<String> codes = products.stream().map(Product::getProductCode).toList();
+            Set<String> existing = new HashSet<>(productRepository.findExistingProductCodes(codes));
+
+            List<Product> toInsert = new ArrayList<>(products.size());
+            for (int i = 0; i < products.size(); i++) {
+                Product product = products.get(i);
+                if (existing.contains(product.getProductCode())) {
+                    rejected.add(new ImportReport.RowError(rows.get(i), product.getProductCode(),
+                            "Product code already exists"));
+                } else {
+                    toInsert.add(product);
+                }
+            }
+            return bulkWriter.insert(toInsert).size();
+        }
+
+        private void fail(long row, String productCode, String message) {
+            failedRows++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(new ImportReport.RowError(row, productCode, message));
+            }
+        }
+
+        private Map<String, Integer> mapHeader(String[] header) {
+            Map<String, Integer> mapping = new HashMap<>();
+            for (int i = 0; i < header.length; i++) {
+                String name = header[i].trim().toLowerCase(Locale.ROOT).replace(" ", "").replace("_", "");
+                if (name.equals("productcode")) {
+                    name = "code";
+                }
+                mapping.putIfAbsent(name, i);
+            }
+            for (String required : List.of("code", "name", "category", "price", "quantity")) {
+                if (!mapping.containsKey(required)) {
+                    throw new IllegalArgumentException("Missing column '" + required + "' in header: "
+                            + Arrays.toString(header));
+                }
+            }
+            return mapping;
+        }
+
+        private String value(String[] cells, String column) {
+            Integer index = columns.get(column);
+            if (index == null || index >= cells.length) {
+                return null;
+            }
+            String value = cells[index].trim();
+            return value.isEmpty() ? null : value;
+        }
+
+        private Product toProduct(String[] cells) {
+            String price = value(cells, "price");
+            String quantity = value(cells, "quantity");
+            Product product = new Product(value(cells, "code"), value(cells, "name"),
+                    price != null ? new BigDecimal(price) : null,
+                    quantity != null ? Integer.valueOf(new BigDecimal(quantity).intValueExact()) : null,
+                    value(cells, "category"), value(cells, "description"));
+            product.setImagePath(value(cells, "image"));
+            return product;
+        }
+    }
+}
@@ -0,0 +1,337 @@
+package com.example.productmanagement.service;
+
+import com.example.productmanagement.entity.Product;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.text.Normalizer;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+
+/**
+ * Inverted index trong bộ nhớ cho tìm kiếm sản phẩm theo name, productCode, category
+ * và description. Từ khóa được tách token, chuyển chữ thường và bỏ dấu; mỗi từ trong
+ * câu truy vấn khớp theo tiền tố, các từ được kết hợp bằng AND và xếp hạng theo trọng số.
+ */
+@Service
+public class ProductSearchIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductSearchIndex.class);
+
+    // Trọng số theo trường: khớp mã sản phẩm/tên quan trọng hơn khớp mô tả
+    private static final int CODE_WEIGHT = 4;
+    private static final int NAME_WEIGHT = 3;
+    private static final int CATEGORY_WEIGHT = 2;
+    private static final int DESCRIPTION_WEIGHT = 1;
+
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    // Gần với collation không phân biệt hoa thường của MySQL
+    private static final Comparator<String> TEXT_ORDER =
+            Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER);
+
+    private final ProductService productService;
+
+    // term -> (productId -> trọng số)
+    private final ConcurrentSkipListMap<String, Map<Long, Integer>> postings = new ConcurrentSkipListMap<>();
+    // productId -> các term của sản phẩm (dùng khi cập nhật/xóa)
+    private final Map<Long, Map<String, Integer>> documents = new ConcurrentHashMap<>();
+    // productId -> các trường đã index (dùng để sắp xếp kết quả search theo cột)
+    private final Map<Long, SortKey> sortKeys = new ConcurrentHashMap<>();
+    private final ReentrantLock writeLock = new ReentrantLock();
+    // Thay đổi (sau commit) đến khi index đang được dựng: phát lại sau khi dựng xong
+    // để dòng đọc từ snapshot cũ không ghi đè lên thay đổi mới hơn
+    private final List<Runnable> pending = new ArrayList<>();
+    private volatile boolean ready;
+
+    public ProductSearchIndex(@Lazy ProductService productService) {
+        this.productService = productService;
+    }
+
+    /**
+     * Dựng index từ database. Các thay đổi đến trong lúc dựng được giữ lại và áp dụng sau cùng,
+     * theo đúng thứ tự commit.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        long start = System.currentTimeMillis();
+        productService.forEachProduct(product -> {
+            Document document = Document.of(product);
+            Map<String, Integer> terms = terms(document);
+            writeLock.lock();
+            try {
+                put(document, terms);
+            } finally {
+                writeLock.unlock();
+            }
+        });
+        int replayed;
+        writeLock.lock();
+        try {
+            replayed = pending.size();
+            pending.forEach(Runnable::run);
+            pending.clear();
+            ready = true;
+        } finally {
+            writeLock.unlock();
+        }
+        log.info("Product search index built: {} products, {} terms, {} changes replayed in {} ms",
+                documents.size(), postings.size(), replayed, System.currentTimeMillis() - start);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Thêm hoặc cập nhật một sản phẩm trong index.
+     */
+    public void index(Document document) {
+        Map<String, Integer> terms = terms(document);
+        apply(() -> put(document, terms));
+    }
+
+    /**
+     * Tồn kho đổi qua điều chỉnh tồn kho (không lưu cả sản phẩm): chỉ cập nhật giá trị sắp xếp.
+     */
+    public void updateQuantity(Long id, Integer quantity) {
+        apply(() -> sortKeys.computeIfPresent(id, (key, current) -> current.withQuantity(quantity)));
+    }
+
+    public void remove(Long id) {
+        apply(() -> removeTerms(id));
+    }
+
+    // Áp dụng một thay đổi ngay, hoặc xếp hàng nếu index chưa dựng xong
+    private void apply(Runnable change) {
+        writeLock.lock();
+        try {
+            if (ready) {
+                change.run();
+            } else {
+                pending.add(change);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Trả về id các sản phẩm khớp TẤT CẢ các từ trong câu truy vấn, xếp theo độ liên quan
+     * giảm dần. Khớp trọn từ được tính gấp đôi khớp tiền tố.
+     */
+    public List<Long> search(String query) {
+        List<String> tokens = tokenize(query);
+        if (tokens.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, Integer> scores = null;
+        for (String token : tokens) {
+            Map<Long, Integer> tokenScores = new HashMap<>();
+            for (Map.Entry<String, Map<Long, Integer>> posting
+                    : postings.subMap(token, true, token + Character.MAX_VALUE, true).entrySet()) {
+                int factor = posting.getKey().equals(token) ? 2 : 1;
+                posting.getValue().forEach((id, weight) -> tokenScores.merge(id, weight * factor, Integer::sum));
+            }
+            if (scores == null) {
+                scores = tokenScores;
+            } else {
+                scores.keySet().retainAll(tokenScores.keySet());
+                scores.replaceAll((id, score) -> score + tokenScores.get(id));
+            }
+            if (scores.isEmpty()) {
+                return List.of();
+            }
+        }
+        List<Map.Entry<Long, Integer>> ranked = new ArrayList<>(scores.entrySet());
+        ranked.sort(Map.Entry.<Long, Integer>comparingByValue(Comparator.reverseOrder())
+                .thenComparing(Map.Entry.comparingByKey()));
+        List<Long> ids = new ArrayList<>(ranked.size());
+        for (Map.Entry<Long, Integer> entry : ranked) {
+            ids.add(entry.getKey());
+        }
+        return ids;
+    }
+
+    /**
+     * Sắp xếp id (kết quả search) theo các cột của sort bằng giá trị đã index, không truy vấn database;
+     * các id cùng giá trị giữ thứ tự liên quan. Ném IllegalArgumentException nếu sort có cột không được index.
+     */
+    public List<Long> sort(List<Long> ids, Sort sort) {
+        Comparator<SortKey> comparator = comparator(sort);
+        if (comparator == null) {
+            return ids;
+        }
+        List<SortKey> matched = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            SortKey key = sortKeys.get(id);
+            if (key != null) {
+                matched.add(key);
+            }
+        }
+        matched.sort(comparator);
+        List<Long> sorted = new ArrayList<>(matched.size());
+        for (SortKey key : matched) {
+            sorted.add(key.id());
+        }
+        return sorted;
+    }
+
+    /**
+     * Phân trang keyset trên kết quả search: các sản phẩm khớp query, xếp theo sort (luôn kết thúc bằng id),
+     * đứng sau vị trí after (rỗng = từ đầu), tối đa limit phần tử. Mỗi phần tử là khóa keyset
+     * (cột của sort -> giá trị, gồm cả "id") dùng để tạo cursor của trang sau.
+     */
+    public List<Map<String, Object>> searchAfter(String query, Sort sort, Map<String, Object> after, int limit) {
+        Comparator<SortKey> comparator = comparator(sort);
+        SortKey start = after.isEmpty() ? null : new SortKey((Long) after.get("id"),
+                (String) after.get("productCode"), (String) after.get("name"), (String) after.get("category"),
+                (BigDecimal) after.get("price"), (Integer) after.get("quantity"), null);
+        List<SortKey> page = search(query).stream()
+                .map(sortKeys::get)
+                .filter(key -> key != null && (start == null || comparator.compare(key, start) > 0))
+                .sorted(comparator)
+                .limit(limit)
+                .toList();
+        List<Map<String, Object>> keys = new ArrayList<>(page.size());
+        for (SortKey key : page) {
+            Map<String, Object> values = new LinkedHashMap<>();
+            for (Sort.Order order : sort) {
+                values.put(order.getProperty(), key.value(order.getProperty()));
+            }
+            keys.add(values);
+        }
+        return keys;
+    }
+
+    // Comparator theo các cột của sort (null nếu sort rỗng)
+    private static Comparator<SortKey> comparator(Sort sort) {
+        Comparator<SortKey> comparator = null;
+        for (Sort.Order order : sort) {
+            Comparator<SortKey> column = switch (order.getProperty()) {
+                case "id" -> Comparator.comparing(SortKey::id);
+                case "productCode" -> Comparator.comparing(SortKey::productCode, TEXT_ORDER);
+                case "name" -> Comparator.comparing(SortKey::name, TEXT_ORDER);
+                case "category" -> Comparator.comparing(SortKey::category, TEXT_ORDER);
+                case "price" -> Comparator.comparing(SortKey::price, Comparator.nullsLast(Comparator.naturalOrder()));
+                case "quantity" -> Comparator.comparing(SortKey::quantity,
+                        Comparator.nullsLast(Comparator.naturalOrder()));
+                case "createdAt" -> Comparator.comparing(SortKey::createdAt,
+                        Comparator.nullsFirst(Comparator.naturalOrder()));
+                default -> throw new IllegalArgumentException("Unsupported sort column: " + order.getProperty());
+            };
+            if (order.isDescending()) {
+                column = column.reversed();
+            }
+            comparator = comparator == null ? column : comparator.thenComparing(column);
+        }
+        return comparator;
+    }
+
+    private static Map<String, Integer> terms(Document document) {
+        Map<String, Integer> terms = new HashMap<>();
+        addTerms(terms, document.productCode(), CODE_WEIGHT);
+        addTerms(terms, document.name(), NAME_WEIGHT);
+        addTerms(terms, document.category(), CATEGORY_WEIGHT);
+        addTerms(terms, document.description(), DESCRIPTION_WEIGHT);
+        return terms;
+    }
+
+    // Gọi khi đang giữ writeLock
+    private void put(Document document, Map<String, Integer> terms) {
+        removeTerms(document.id());
+        terms.forEach((term, weight) ->
+                postings.computeIfAbsent(term, key -> new ConcurrentHashMap<>()).put(document.id(), weight));
+        documents.put(document.id(), terms);
+        sortKeys.put(document.id(), new SortKey(document.id(), document.productCode(), document.name(),
+                document.category(), document.price(), document.quantity(), document.createdAt()));
+    }
+
+    private void removeTerms(Long id) {
+        sortKeys.remove(id);
+        Map<String, Integer> previous = documents.remove(id);
+        if (previous == null) {
+            return;
+        }
+        for (String term : previous.keySet()) {
+            postings.computeIfPresent(term, (key, ids) -> {
+                ids.remove(id);
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+    }
+
+    private static void addTerms(Map<String, Integer> terms, String text, int weight) {
+        for (String token : tokenize(text)) {
+            terms.merge(token, weight, Integer::sum);
+        }
+    }
+
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        String folded = Normalizer.normalize(text, Normalizer.Form.NFD);
+        folded = MARKS.matcher(folded).replaceAll("")
+                .replace('đ', 'd').replace('Đ', 'D')
+                .toLowerCase(Locale.ROOT);
+        List<String> tokens = new ArrayList<>();
+        for (String token : NON_WORD.split(folded)) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Bản sao các trường được index, chụp lại trước khi transaction commit.
+     */
+    public record Document(Long id, String productCode, String name, String category, String description,
+            BigDecimal price, Integer quantity, LocalDateTime createdAt) {
+
+        public static Document of(Product product) {
+            return new Document(product.getId(), product.getProductCode(), product.getName(),
+                    product.getCategory(), product.getDescription(), product.getPrice(), product.getQuantity(),
+                    product.getCreatedAt());
+        }
+    }
+
+    // Các cột sắp xếp được của một sản phẩm (không giữ description để index không tốn thêm bộ nhớ)
+    private record SortKey(Long id, String productCode, String name, String category, BigDecimal price,
+            Integer quantity, LocalDateTime createdAt) {
+
+        SortKey withQuantity(Integer quantity) {
+            return new SortKey(id, productCode, name, category, price, quantity, createdAt);
+        }
+
+        Object value(String property) {
+            return switch (property) {
+                case "id" -> id;
+                case "productCode" -> productCode;
+                case "name" -> name;
+                case "category" -> category;
+                case "price" -> price;
+                case "quantity" -> quantity;
+                case "createdAt" -> createdAt;
+                default -> throw new IllegalArgumentException("Unsupported sort column: " + property);
+            };
+        }
+    }
+}
@@ -1,40 +1,76 @@
 package com.example.productmanagement.service;
 
+import com.example.productmanagement.dto.DashboardStatistics;
+import com.example.productmanagement.dto.ProductSummary;
+import com.example.productmanagement.dto.StockLevel;
 import com.example.productmanagement.entity.Product;
 
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 import org.springframework.data.domain.Sort;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Window;
 
 public interface ProductService {
 
+    /**
+     * Sản phẩm theo id (qua cache). Ở chế độ write-behind, quantity gồm cả các delta chưa ghi
+     * xuống database; các truy vấn danh sách chỉ thấy chúng sau lần flush kế tiếp.
+     */
     Optional<Product> getProductById(Long id);
 
+    /**
+     * Version hiện tại trong database (không qua cache), dùng để so khớp If-Match trước khi sửa/xóa.
+     */
+    Optional<Long> getProductVersion(Long id);
+
     Product saveProduct(Product product);
 
     void deleteProduct(Long id);
 
+    /**
+     * Xóa sản phẩm nếu version hiện tại bằng expectedVersion (If-Match), nếu không
+     * ném OptimisticLockingFailureException.
+     */
+    void deleteProduct(Long id, long expectedVersion);
+
+    /**
+     * Cộng delta (có dấu) vào tồn kho bằng một lệnh UPDATE có điều kiện (không đọc-sửa-ghi),
+     * hoặc qua bộ đệm write-behind nếu inventory.write-behind.enabled=true. Trả về tồn kho mới, rỗng nếu không có sản phẩm; ném InsufficientStockException nếu
+     * số lượng sẽ âm và IllegalArgumentException nếu |delta| vượt 1.000.000.
+     */
+    Optional<StockLevel> adjustStock(Long id, int delta);
+
+    /**
+     * Tồn kho hiện tại (ở chế độ write-behind gồm cả các delta chưa ghi xuống database).
+     */
+    Optional<StockLevel> getStockLevel(Long id);
+
     /**
      * Lấy tất cả sản phẩm có phân trang (dùng cho trang chủ /products khi không có
-     * filter).
+     * filter). Các phương thức cho trang danh sách / Dashboard trả về ProductSummary
+     * (projection không có description, không được quản lý trong persistence context).
      */
-    Page<Product> findAll(Pageable pageable);
+    Page<ProductSummary> findAll(Pageable pageable);
 
     /**
      * Lọc sản phẩm theo Category có phân trang (dùng cho filter dropdown).
      */
-    Page<Product> getProductsByCategory(String category, Pageable pageable);
+    Page<ProductSummary> getProductsByCategory(String category, Pageable pageable);
 
     // Exercise 5
     /**
-     * Tìm kiếm sản phẩm theo từ khóa (Name) có phân trang (dùng cho
-     * /products/search).
+     * Tìm kiếm sản phẩm theo từ khóa có phân trang (dùng cho /products/search).
+     * Dùng inverted index trên name, productCode, category, description; kết quả
+     * xếp theo độ liên quan nếu không chỉ định sắp xếp; sắp xếp theo cột dùng giá trị trong index
+     * (IllegalArgumentException nếu cột không được index).
      */
-    Page<Product> searchProducts(String keyword, Pageable pageable);
+    Page<ProductSummary> searchProducts(String keyword, Pageable pageable);
 
     /**
      * Tìm kiếm nâng cao theo nhiều tiêu chí (Hiện tại không có phân trang, nếu
@@ -52,9 +88,22 @@ public interface ProductService {
     /**
      * Tìm kiếm nâng cao có hỗ trợ phân trang
      */
-    Page<Product> advancedSearchProducts(String name, String category, BigDecimal minPrice, BigDecimal maxPrice,
+    Page<ProductSummary> advancedSearchProducts(String name, String category, BigDecimal minPrice, BigDecimal maxPrice,
             Pageable pageable);
 
+    /**
+     * Phân trang keyset (seek) với cùng bộ lọc như Advanced Search. cursor là token
+     * trả về từ {@link ProductCursor#nextCursor}; null hoặc rỗng là trang đầu.
+     * Không chạy COUNT(*), chi phí trang sâu bằng trang đầu.
+     */
+    Window<Product> scrollProducts(String name, String category, BigDecimal minPrice, BigDecimal maxPrice,
+            String sortBy, String sortDir, String cursor, int size);
+
+    /**
+     * Phân trang keyset cho /products/search: cùng cách khớp từ khóa như {@link #searchProducts}
+     * (search index), cursor dạng {@link ProductCursor}. Dùng LIKE trên name khi index chưa sẵn sàng.
+     */
+    Window<Product> scrollSearch(String keyword, String sortBy, String sortDir, String cursor, int size);
 
     //EX7
     // XÓA CÁC PHƯƠNG THỨC TRÙNG LẶP CHO EX7 (Không cần thiết khi dùng Pageable):
@@ -77,12 +126,45 @@ public interface ProductService {
     BigDecimal calculateAverageProductPrice();
     
     // Cảnh báo
-    List<Product> getLowStockAlerts(int threshold);
+    List<ProductSummary> getLowStockAlerts(int threshold);
+
+    /**
+     * Sản phẩm có tồn kho dưới ngưỡng Low Stock của Category (inventory.low-stock.*).
+     */
+    List<ProductSummary> getLowStockProducts();
     
     // Sản phẩm gần đây
-    List<Product> getRecentProducts();  
+    List<ProductSummary> getRecentProducts();  
+
+    /**
+     * Tổng số, tổng giá trị, giá trung bình và số liệu theo từng Category,
+     * tính bằng một truy vấn gom nhóm duy nhất.
+     */
+    DashboardStatistics getDashboardStatistics();
 
     //Bonus
     /** Lấy tất cả sản phẩm (dùng cho API REST) */
     List<Product> getAllProducts();
+
+    /**
+     * Duyệt tuần tự tất cả sản phẩm bằng cursor (dùng cho Export). Entity được
+     * tách khỏi persistence context theo lô nên bộ nhớ không tăng theo số dòng.
+     */
+    void forEachProduct(Consumer<Product> action);
+
+    /**
+     * Sparse fieldset: chỉ đọc các thuộc tính fields (đã kiểm tra bằng ProductFields.parse)
+     * của tất cả sản phẩm, theo thứ tự id.
+     */
+    List<Map<String, Object>> getAllProducts(List<String> fields);
+
+    /**
+     * Như forEachProduct nhưng chỉ đọc các thuộc tính fields (dùng cho NDJSON với ?fields=).
+     */
+    void forEachProduct(List<String> fields, Consumer<Map<String, Object>> action);
+
+    /**
+     * Ghi nhận các bản thu nhỏ đã tạo cho ảnh imagePath của sản phẩm (bỏ qua nếu ảnh đã bị thay).
+     */
+    void recordImageVariants(Long id, String imagePath, String variants);
 }
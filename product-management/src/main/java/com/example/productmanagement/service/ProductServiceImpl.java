@@ -1,50 +1,165 @@
 package com.example.productmanagement.service;
 
+import com.example.productmanagement.dto.DashboardStatistics;
+import com.example.productmanagement.dto.ProductSummary;
+import com.example.productmanagement.dto.StockLevel;
 import com.example.productmanagement.entity.Product;
 import com.example.productmanagement.repository.ProductRepository;
+import com.example.productmanagement.repository.ProductSpecifications;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Iterator;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import jakarta.persistence.EntityManager;
 
 import org.springframework.data.domain.Sort;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Window;
 
 @Service
 @Transactional
+@Timed(value = "product.service", description = "ProductService method latency", histogram = true,
+        percentiles = { 0.5, 0.95, 0.99 })
 public class ProductServiceImpl implements ProductService {
 
+    // Giới hạn một lần điều chỉnh tồn kho: delta khổng lồ làm quantity + delta tràn cột INT (lỗi 500 thay vì 400)
+    public static final int MAX_STOCK_DELTA = 1_000_000;
+
+    // Số entity được đọc trước khi xóa persistence context khi stream
+    private static final int STREAM_BATCH_SIZE = 500;
+
+    private static final String CATEGORIES_CACHE_KEY = "categories";
+
     private final ProductRepository productRepository;
+    private final EntityManager entityManager;
+    private final ProductSearchIndex searchIndex;
+    private final ProductChangeTracker changeTracker;
+    private final InventoryStatistics inventoryStatistics;
+    private final ReferenceDataCache referenceDataCache;
+    private final StockWriteBehindBuffer stockBuffer;
+    private final LowStockMonitor lowStockMonitor;
+    private final ProductCache productCache;
 
-    public ProductServiceImpl(ProductRepository productRepository) {
+    public ProductServiceImpl(ProductRepository productRepository, EntityManager entityManager,
+            ProductSearchIndex searchIndex, ProductChangeTracker changeTracker,
+            InventoryStatistics inventoryStatistics, ReferenceDataCache referenceDataCache,
+            StockWriteBehindBuffer stockBuffer, LowStockMonitor lowStockMonitor, ProductCache productCache) {
         this.productRepository = productRepository;
+        this.entityManager = entityManager;
+        this.searchIndex = searchIndex;
+        this.changeTracker = changeTracker;
+        this.inventoryStatistics = inventoryStatistics;
+        this.referenceDataCache = referenceDataCache;
+        this.stockBuffer = stockBuffer;
+        this.lowStockMonitor = lowStockMonitor;
+        this.productCache = productCache;
     }
 
     @Override
     @Transactional(readOnly = true)
-    public Page<Product> findAll(Pageable pageable) {
-        return productRepository.findAll(pageable);
+    public Page<ProductSummary> findAll(Pageable pageable) {
+        return productRepository.findAllSummaries(pageable);
     }
 
     // Phương thức cũ đã bị xóa: public List<Product> getAllProducts()
 
+    // Read-through cache: bản ghi bị xóa khỏi cache sau mỗi lần ghi (ProductChangeTracker).
+    // Ở chế độ write-behind, quantity gồm cả các delta chưa flush (cache chỉ giữ giá trị trong database)
     @Override
+    @Transactional(readOnly = true)
     public Optional<Product> getProductById(Long id) {
-        return productRepository.findById(id);
+        Optional<Product> product = productCache.get(id, productRepository::findById);
+        if (stockBuffer.isEnabled()) {
+            product.ifPresent(found -> found.setQuantity(stockBuffer.quantity(found.getId(), found.getQuantity())));
+        }
+        return product;
+    }
+
+    // Đọc thẳng từ database (không qua cache) cho If-Match / optimistic locking
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<Long> getProductVersion(Long id) {
+        return productRepository.findVersionById(id);
     }
 
     @Override
     public Product saveProduct(Product product) {
         // Validation logic can go here
-        return productRepository.save(product);
+        // Chụp trạng thái cũ để cập nhật thống kê; entity được nạp vào persistence
+        // context nên save() (merge) không cần truy vấn lại
+        InventoryStatistics.ProductState before = product.getId() == null ? null
+                : productRepository.findById(product.getId()).map(InventoryStatistics.ProductState::of).orElse(null);
+        Product saved = productRepository.save(product);
+        changeTracker.saved(before, saved);
+        return saved;
     }
 
     @Override
     public void deleteProduct(Long id) {
-        productRepository.deleteById(id);
+        productRepository.findById(id).ifPresent(this::delete);
+    }
+
+    @Override
+    public void deleteProduct(Long id, long expectedVersion) {
+        productRepository.findById(id).ifPresent(product -> {
+            // DELETE của Hibernate cũng kèm điều kiện version, nên không có khe hở giữa kiểm tra và xóa
+            if (product.getVersion() != expectedVersion) {
+                throw new OptimisticLockingFailureException("Product " + id + " has been modified");
+            }
+            delete(product);
+        });
+    }
+
+    @Override
+    public Optional<StockLevel> adjustStock(Long id, int delta) {
+        if (delta < -MAX_STOCK_DELTA || delta > MAX_STOCK_DELTA) {
+            throw new IllegalArgumentException("delta must be between -" + MAX_STOCK_DELTA + " and " + MAX_STOCK_DELTA);
+        }
+        if (stockBuffer.isEnabled()) {
+            // Ghi vào bộ đệm (và journal); database được cập nhật theo lô
+            return stockBuffer.adjust(id, delta);
+        }
+        // UPDATE giữ khóa dòng đến khi commit, nên lần đọc sau đó thấy đúng số lượng mới
+        if (productRepository.adjustQuantity(id, delta) == 0) {
+            // Không cập nhật được: hoặc không có sản phẩm, hoặc bán vượt tồn kho
+            Optional<StockLevel> current = productRepository.findStockLevel(id);
+            if (current.isPresent()) {
+                Integer available = current.get().quantity();
+                throw new InsufficientStockException(id, delta, available != null ? available : 0);
+            }
+            return Optional.empty();
+        }
+        Optional<StockLevel> after = productRepository.findStockLevel(id);
+        after.ifPresent(level -> changeTracker.stockAdjusted(level, delta));
+        return after;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<StockLevel> getStockLevel(Long id) {
+        return stockBuffer.isEnabled() ? stockBuffer.level(id) : productRepository.findStockLevel(id);
+    }
+
+    private void delete(Product product) {
+        InventoryStatistics.ProductState before = InventoryStatistics.ProductState.of(product);
+        productRepository.delete(product);
+        changeTracker.deleted(before, product.getId());
     }
 
     /**
@@ -52,14 +167,49 @@ public class ProductServiceImpl implements ProductService {
      */
     @Override
     @Transactional(readOnly = true)
-    public Page<Product> searchProducts(String keyword, Pageable pageable) {
+    public Page<ProductSummary> searchProducts(String keyword, Pageable pageable) {
         if (keyword == null || keyword.trim().isEmpty()) {
             // Nếu keyword trống, trả về tất cả sản phẩm có phân trang
-            return productRepository.findAll(pageable);
+            return productRepository.findAllSummaries(pageable);
+        }
+
+        // Dùng inverted index khi đã sẵn sàng; LIKE '%...%' chỉ là phương án dự phòng lúc khởi động
+        if (searchIndex.isReady()) {
+            return pageOfIds(searchIndex.search(keyword), pageable);
         }
 
         // SỬA LỖI CHÍNH TẢ: findByNameContainings -> findByNameContaining
-        return productRepository.findByNameContaining(keyword, pageable);
+        return productRepository.findSummariesByNameContaining(keyword, pageable);
+    }
+
+    /**
+     * Chuyển danh sách id (đã xếp hạng) thành Page: sắp xếp theo cột (nếu có) bằng giá trị trong index,
+     * rồi chỉ đọc các id của trang hiện tại; không sắp xếp thì giữ thứ tự theo độ liên quan.
+     * Cột không có trong index ném IllegalArgumentException (không cắt bớt kết quả).
+     */
+    private Page<ProductSummary> pageOfIds(List<Long> ids, Pageable pageable) {
+        if (ids.isEmpty()) {
+            return Page.empty(pageable);
+        }
+        if (pageable.getSort().isSorted()) {
+            ids = searchIndex.sort(ids, pageable.getSort());
+        }
+        int from = (int) Math.min(pageable.getOffset(), ids.size());
+        int to = Math.min(from + pageable.getPageSize(), ids.size());
+        List<Long> pageIds = ids.subList(from, to);
+
+        Map<Long, ProductSummary> byId = new HashMap<>();
+        for (ProductSummary product : productRepository.findSummariesByIdIn(pageIds)) {
+            byId.put(product.getId(), product);
+        }
+        List<ProductSummary> content = new ArrayList<>(pageIds.size());
+        for (Long id : pageIds) {
+            ProductSummary product = byId.get(id);
+            if (product != null) {
+                content.add(product);
+            }
+        }
+        return new PageImpl<>(content, pageable, ids.size());
     }
 
     // Phương thức cũ đã bị xóa: public List<Product> searchProducts(String keyword)
@@ -69,10 +219,8 @@ public class ProductServiceImpl implements ProductService {
      */
     @Override
     @Transactional(readOnly = true)
-    public Page<Product> getProductsByCategory(String category, Pageable pageable) {
-        // Giả định Repository có phương thức Page<Product> findByCategory(String
-        // category, Pageable pageable)
-        return productRepository.findByCategory(category, pageable);
+    public Page<ProductSummary> getProductsByCategory(String category, Pageable pageable) {
+        return productRepository.findSummariesByCategory(category, pageable);
     }
 
     // Exercise 5
@@ -92,19 +240,63 @@ public class ProductServiceImpl implements ProductService {
     // }
 
     @Override
+    @Transactional(readOnly = true)
     public List<String> findAllCategories() {
-        return productRepository.findAllCategories();
+        // Cache theo version, hết hiệu lực khi có sản phẩm được thêm/xóa/đổi Category
+        return referenceDataCache.get(CATEGORIES_CACHE_KEY,
+                () -> List.copyOf(productRepository.findAllCategories()));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Page<ProductSummary> advancedSearchProducts(String name, String category, BigDecimal minPrice,
+            BigDecimal maxPrice, Pageable pageable) {
+        // Chỉ ghép các điều kiện có giá trị (bỏ qua tham số null/rỗng)
+        return productRepository.findSummaries(ProductSpecifications.matching(name, category, minPrice, maxPrice),
+                pageable);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Window<Product> scrollProducts(String name, String category, BigDecimal minPrice, BigDecimal maxPrice,
+            String sortBy, String sortDir, String cursor, int size) {
+        Sort sort = ProductCursor.sortFor(sortBy, sortDir);
+        // Token sinh ra với cột hoặc hướng sắp xếp khác thì bắt đầu lại từ đầu
+        KeysetScrollPosition position = ProductCursor.decode(cursor, sort);
+
+        return productRepository.findBy(ProductSpecifications.matching(name, category, minPrice, maxPrice),
+                query -> query.sortBy(sort).limit(size).scroll(position));
     }
 
     @Override
     @Transactional(readOnly = true)
-    public Page<Product> advancedSearchProducts(String name, String category, BigDecimal minPrice, BigDecimal maxPrice,
-            Pageable pageable) {
-        String finalName = (name != null && !name.trim().isEmpty()) ? name : null;
-        String finalCategory = (category != null && !category.trim().isEmpty()) ? category : null;
+    public Window<Product> scrollSearch(String keyword, String sortBy, String sortDir, String cursor, int size) {
+        if (keyword == null || keyword.isBlank() || !searchIndex.isReady()) {
+            return scrollProducts(keyword, null, null, null, sortBy, sortDir, cursor, size);
+        }
+        Sort sort = ProductCursor.sortFor(sortBy, sortDir);
+        KeysetScrollPosition position = ProductCursor.decode(cursor, sort);
 
-        // Call the Repository method with the new Pageable argument
-        return productRepository.searchProducts(finalName, finalCategory, minPrice, maxPrice, pageable);
+        // Seek trên kết quả của search index (đã xếp theo sort), lấy thêm một phần tử để biết còn trang sau
+        List<Map<String, Object>> keys = searchIndex.searchAfter(keyword, sort, position.getKeys(), size + 1);
+        boolean hasNext = keys.size() > size;
+        List<Map<String, Object>> pageKeys = hasNext ? keys.subList(0, size) : keys;
+
+        Map<Long, Product> byId = new HashMap<>();
+        for (Product product : productRepository.findAllById(
+                pageKeys.stream().map(key -> (Long) key.get("id")).toList())) {
+            byId.put(product.getId(), product);
+        }
+        List<Product> content = new ArrayList<>(pageKeys.size());
+        List<Map<String, Object>> contentKeys = new ArrayList<>(pageKeys.size());
+        for (Map<String, Object> key : pageKeys) {
+            Product product = byId.get((Long) key.get("id"));
+            if (product != null) {
+                content.add(product);
+                contentKeys.add(key);
+            }
+        }
+        return Window.from(content, index -> ScrollPosition.forward(contentKeys.get(index)), hasNext);
     }
 
     // EX7
@@ -142,15 +334,34 @@ public class ProductServiceImpl implements ProductService {
 
     @Override
     @Transactional(readOnly = true)
-    public List<Product> getLowStockAlerts(int threshold) {
-        return productRepository.findLowStockProducts(threshold);
+    public List<ProductSummary> getLowStockAlerts(int threshold) {
+        return productRepository.findLowStockSummaries(threshold);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<ProductSummary> getLowStockProducts() {
+        // Lọc ứng viên bằng ngưỡng lớn nhất (dùng index quantity), rồi so với ngưỡng của từng Category
+        return productRepository.findLowStockSummaries(lowStockMonitor.getMaxThreshold()).stream()
+                .filter(product -> lowStockMonitor.isLow(product.getCategory(), product.getQuantity()))
+                .toList();
     }
 
     @Override
     @Transactional(readOnly = true)
-    public List<Product> getRecentProducts() {
-        // Sử dụng phương thức findTop5ByOrderByCreatedAtDesc() đã thêm
-        return productRepository.findTop5ByOrderByCreatedAtDesc();
+    public List<ProductSummary> getRecentProducts() {
+        // Tương đương findTop5ByOrderByCreatedAtDesc() nhưng chỉ đọc các cột hiển thị
+        return productRepository.findRecentSummaries(Limit.of(5));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public DashboardStatistics getDashboardStatistics() {
+        // Đọc từ bộ đếm trong bộ nhớ (O(1) theo số dòng); chỉ truy vấn khi chưa nạp xong
+        if (inventoryStatistics.isReady()) {
+            return inventoryStatistics.snapshot();
+        }
+        return DashboardStatistics.of(productRepository.aggregateByCategory());
     }
 
     // Bonus
@@ -160,4 +371,43 @@ public class ProductServiceImpl implements ProductService {
         // Kế thừa từ JpaRepository, lấy tất cả mà không phân trang
         return productRepository.findAll();
     }
-}
\ No newline at end of file
+
+    @Override
+    @Transactional(readOnly = true)
+    public void forEachProduct(Consumer<Product> action) {
+        try (Stream<Product> products = productRepository.streamAll()) {
+            Iterator<Product> iterator = products.iterator();
+            int count = 0;
+            while (iterator.hasNext()) {
+                action.accept(iterator.next());
+                // Tách các entity đã xử lý để persistence context không phình to
+                if (++count % STREAM_BATCH_SIZE == 0) {
+                    entityManager.clear();
+                }
+            }
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> getAllProducts(List<String> fields) {
+        try (Stream<Map<String, Object>> rows = productRepository.streamAllFields(fields)) {
+            return rows.toList();
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void forEachProduct(List<String> fields, Consumer<Map<String, Object>> action) {
+        try (Stream<Map<String, Object>> rows = productRepository.streamAllFields(fields)) {
+            rows.forEach(action);
+        }
+    }
+
+    @Override
+    public void recordImageVariants(Long id, String imagePath, String variants) {
+        if (productRepository.updateImageVariants(id, imagePath, variants) > 0) {
+            changeTracker.changed(id);
+        }
+    }
+}
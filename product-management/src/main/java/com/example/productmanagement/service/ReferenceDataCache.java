@@ -0,0 +1,73 @@
+package com.example.productmanagement.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Cache cho dữ liệu tham chiếu ít thay đổi (danh sách Category, ...).
+ * Mỗi giá trị được gắn với số version tại thời điểm nạp; khi dữ liệu sản phẩm thay đổi,
+ * version tăng lên và các giá trị cũ tự động hết hiệu lực ở lần đọc kế tiếp.
+ */
+@Service
+public class ReferenceDataCache {
+
+    private final AtomicLong version = new AtomicLong();
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public ReferenceDataCache(MeterRegistry meterRegistry) {
+        FunctionCounter.builder("reference.cache.requests", hits, LongAdder::sum)
+                .tag("result", "hit")
+                .description("Reference data cache lookups")
+                .register(meterRegistry);
+        FunctionCounter.builder("reference.cache.requests", misses, LongAdder::sum)
+                .tag("result", "miss")
+                .description("Reference data cache lookups")
+                .register(meterRegistry);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T get(String key, Supplier<T> loader) {
+        // Đọc version TRƯỚC khi nạp: nếu có ghi xen giữa, giá trị sẽ bị coi là cũ ở lần sau
+        long current = version.get();
+        Entry entry = entries.get(key);
+        if (entry != null && entry.version() == current) {
+            hits.increment();
+            return (T) entry.value();
+        }
+        misses.increment();
+        T value = loader.get();
+        entries.put(key, new Entry(current, value));
+        return value;
+    }
+
+    /**
+     * Tăng version sau khi transaction hiện tại commit.
+     */
+    public void invalidateAfterCommit() {
+        TransactionHooks.afterCommit(version::incrementAndGet);
+    }
+
+    public long getVersion() {
+        return version.get();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    private record Entry(long version, Object value) {
+    }
+}
@@ -0,0 +1,605 @@
+package com.example.productmanagement.service;
+
+import com.example.productmanagement.dto.StockLevel;
+import com.example.productmanagement.repository.ProductRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Chế độ write-behind cho tồn kho (inventory.write-behind.enabled=true).
+ *
+ * Delta được cộng dồn theo từng sản phẩm trong bộ nhớ (ConcurrentHashMap, mỗi sản phẩm
+ * một AtomicReference cập nhật bằng CAS) và ghi xuống database theo lô: mỗi chu kỳ
+ * flush-interval hoặc khi đủ flush-threshold delta, một transaction với một lệnh
+ * UPDATE cho mỗi sản phẩm có thay đổi. Số lệnh ghi vì vậy phụ thuộc số sản phẩm
+ * thay đổi trong một chu kỳ, không phụ thuộc số sự kiện trên mỗi SKU.
+ *
+ * Kiểm tra bán vượt tồn kho thực hiện trong bộ nhớ: số lượng trong database (đọc lại sau mỗi
+ * lần flush) cộng các delta đang chờ. Khi sản phẩm được lưu với số lượng tuyệt đối (form, PUT,
+ * batch) hoặc bị xóa, ProductChangeTracker gọi {@link #overwritten} sau khi commit: giá trị vừa
+ * ghi thay cho các delta đang chờ của sản phẩm (như khi ghi thẳng vào database) và trở thành mốc
+ * mới cho lần kiểm tra sau. Vì vậy delta đã nhận luôn hợp lệ với số lượng mà flush sẽ cộng vào.
+ *
+ * UPDATE vẫn giữ điều kiện quantity + delta >= 0 để database không bao giờ âm khi có thao tác
+ * ghi không đi qua ứng dụng (SQL trực tiếp) hoặc xen vào giữa commit và overwritten. Delta bị từ
+ * chối không được ghi: nó được đếm ở metric inventory.write_behind.rejected, ghi log và phát cảnh
+ * báo LowStockAlert REJECTED (event "stock-rejected" trên /api/alerts/low-stock) để đối soát.
+ *
+ * Đọc theo id (getProductById, GET /api/products/{id} và ETag của nó, tồn kho) thấy cả delta
+ * đang chờ qua {@link #quantity}. Các truy vấn danh sách (GET /api/products, NDJSON, /products,
+ * search, Dashboard) lọc, sắp xếp và tổng hợp trong database nên chỉ thấy số lượng đã flush,
+ * chậm hơn tối đa một chu kỳ flush.
+ *
+ * Mỗi delta được ghi vào journal (file append-only trong journal-dir) trước khi trả lời
+ * client. Khi flush, journal được chuyển sang segment mới; số thứ tự của segment cuối đã
+ * áp dụng được lưu vào bảng stock_journal_checkpoint trong cùng transaction với UPDATE,
+ * rồi các segment cũ mới bị xóa. Lúc khởi động, các segment còn lại có số thứ tự lớn hơn
+ * checkpoint được áp dụng vào database; segment đã áp dụng (process dừng giữa commit và
+ * xóa file) chỉ bị xóa, không cộng lại lần nữa. Journal không fsync từng bản ghi: dữ liệu
+ * an toàn khi process bị dừng đột ngột, nhưng mất điện có thể làm mất tối đa một chu kỳ flush.
+ */
+@Component
+class StockWriteBehindBuffer {
+
+    private static final Logger log = LoggerFactory.getLogger(StockWriteBehindBuffer.class);
+
+    private static final String UPDATE_SQL = "UPDATE products SET quantity = quantity + ?, "
+            + "version = version + 1, updated_at = ? WHERE id = ? AND quantity + ? >= 0";
+
+    // Một dòng (id = 1): số thứ tự segment cuối cùng đã được áp dụng vào database
+    static final String CHECKPOINT_TABLE = "stock_journal_checkpoint";
+
+    // Bản ghi journal: id (long) + delta (int)
+    private static final int RECORD_SIZE = Long.BYTES + Integer.BYTES;
+    private static final String SEGMENT_PREFIX = "stock-";
+    private static final String SEGMENT_SUFFIX = ".journal";
+
+    private final boolean enabled;
+    private final Duration flushInterval;
+    private final int flushThreshold;
+    private final Path journalDir;
+    private final ProductRepository productRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ProductChangeTracker changeTracker;
+    private final Counter rejectedDeltas;
+
+    private final ConcurrentHashMap<Long, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicInteger sinceFlush = new AtomicInteger();
+
+    // Read lock: ghi nhận delta (CAS + ghi journal). Write lock: flush đổi segment và chụp các delta đang chờ.
+    // Dùng ReentrantReadWriteLock thay vì synchronized để virtual thread không bị pin khi chờ I/O.
+    private final ReentrantReadWriteLock journalLock = new ReentrantReadWriteLock();
+    // Giữ suốt một lần flush (chụp, ghi, trừ delta) và trong overwritten: hai bên không xen nhau.
+    // Thứ tự khóa: flushLock rồi mới journalLock
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private FileChannel journal;
+    private long segmentNumber;
+
+    private ScheduledExecutorService flusher;
+
+    StockWriteBehindBuffer(@Value("${inventory.write-behind.enabled:false}") boolean enabled,
+            @Value("${inventory.write-behind.flush-interval:PT0.2S}") Duration flushInterval,
+            @Value("${inventory.write-behind.flush-threshold:5000}") int flushThreshold,
+            @Value("${inventory.write-behind.journal-dir:data/stock-journal}") String journalDir,
+            ProductRepository productRepository, JdbcTemplate jdbcTemplate,
+            TransactionTemplate transactionTemplate, ProductChangeTracker changeTracker,
+            MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.flushInterval = flushInterval;
+        this.flushThreshold = flushThreshold;
+        this.journalDir = Paths.get(journalDir).toAbsolutePath().normalize();
+        this.productRepository = productRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.changeTracker = changeTracker;
+        this.rejectedDeltas = Counter.builder("inventory.write_behind.rejected")
+                .description("Stock deltas rejected at flush because the quantity would become negative")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void start() throws IOException {
+        if (!enabled && segments().isEmpty()) {
+            return;
+        }
+        // Áp dụng delta còn sót từ lần chạy trước (kể cả khi chế độ này đã bị tắt)
+        createCheckpointTable();
+        replay();
+        if (!enabled) {
+            return;
+        }
+        Files.createDirectories(journalDir);
+        // Số thứ tự segment tăng liên tục qua các lần khởi động (không bao giờ <= checkpoint)
+        segmentNumber = readCheckpoint();
+        openSegment();
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "stock-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = flushInterval.toMillis();
+        flusher.scheduleWithFixedDelay(this::flushQuietly, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        log.info("Stock write-behind enabled (flush every {} or {} deltas)", flushInterval, flushThreshold);
+    }
+
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Ghi nhận delta vào bộ đệm. Trả về tồn kho mới (gồm các delta chưa ghi xuống database),
+     * rỗng nếu không có sản phẩm; ném InsufficientStockException nếu số lượng sẽ âm.
+     */
+    Optional<StockLevel> adjust(Long id, int delta) {
+        while (true) {
+            Entry entry = entries.computeIfAbsent(id, this::load);
+            if (entry == null) {
+                return Optional.empty();
+            }
+            long available;
+            journalLock.readLock().lock();
+            try {
+                available = entry.add(id, delta);
+                if (available == Entry.RETIRED) {
+                    continue; // entry vừa bị flush gỡ ra, nạp lại
+                }
+                try {
+                    append(id, delta);
+                } catch (UncheckedIOException e) {
+                    entry.undo(delta); // không ghi được journal thì không nhận delta
+                    throw e;
+                }
+            } finally {
+                journalLock.readLock().unlock();
+            }
+            if (sinceFlush.incrementAndGet() == flushThreshold) {
+                try {
+                    flusher.execute(this::flushQuietly);
+                } catch (RejectedExecutionException e) {
+                    // Đang tắt ứng dụng: lần flush cuối trong shutdown() sẽ ghi delta này
+                }
+            }
+            return Optional.of(entry.level(id, available));
+        }
+    }
+
+    /**
+     * Tồn kho hiện tại gồm cả các delta đang chờ ghi.
+     */
+    Optional<StockLevel> level(Long id) {
+        Entry entry = entries.get(id);
+        if (entry != null) {
+            State state = entry.state.get();
+            if (!state.retired()) {
+                return Optional.of(entry.level(id, state.available()));
+            }
+        }
+        return productRepository.findStockLevel(id);
+    }
+
+    /**
+     * Số lượng hiển thị cho một sản phẩm vừa đọc từ database: gồm các delta chưa ghi nếu có,
+     * ngược lại là chính databaseQuantity.
+     */
+    Integer quantity(Long id, Integer databaseQuantity) {
+        Entry entry = id != null ? entries.get(id) : null;
+        if (entry != null) {
+            State state = entry.state.get();
+            if (!state.retired() && state.pending() != 0) {
+                return (int) state.available();
+            }
+        }
+        return databaseQuantity;
+    }
+
+    /**
+     * Gọi sau khi commit một lần ghi tuyệt đối số lượng (hoặc xóa) sản phẩm: bỏ các delta đang chờ
+     * (ghi bản ghi bù vào journal để replay không cộng lại) và lấy số lượng trong database làm mốc.
+     */
+    void overwritten(Long id) {
+        if (!enabled || id == null || !entries.containsKey(id)) {
+            return;
+        }
+        flushLock.lock();
+        try {
+            journalLock.readLock().lock();
+            try {
+                Entry entry = entries.get(id);
+                if (entry == null) {
+                    return;
+                }
+                Integer quantity = productRepository.findStockLevel(id)
+                        .map(level -> level.quantity() != null ? level.quantity() : 0)
+                        .orElse(null);
+                long dropped = entry.reset(quantity);
+                if (dropped != 0) {
+                    append(id, (int) -dropped);
+                    log.info("Stock deltas {} for product {} superseded by an absolute write", dropped, id);
+                }
+                if (quantity == null) {
+                    entries.remove(id, entry);
+                }
+            } finally {
+                journalLock.readLock().unlock();
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private Entry load(Long id) {
+        return productRepository.findStockLevel(id)
+                .map(level -> new Entry(level.category(), level.price(),
+                        level.quantity() != null ? level.quantity() : 0))
+                .orElse(null);
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            // Delta vẫn nằm trong bộ đệm và journal, lần flush sau sẽ thử lại
+            log.error("Stock write-behind flush failed", e);
+        }
+    }
+
+    /**
+     * Ghi các delta đang chờ xuống database trong một transaction. Chỉ chạy trên thread flusher.
+     */
+    void flush() throws IOException {
+        flushLock.lock();
+        try {
+            flushLocked();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void flushLocked() throws IOException {
+        Map<Long, Long> snapshot = new HashMap<>();
+        List<Path> completedSegments;
+        long completedSegment;
+
+        // 1. Đổi segment và chụp delta dưới write lock: segment cũ chứa đúng các delta trong snapshot
+        journalLock.writeLock().lock();
+        try {
+            sinceFlush.set(0);
+            entries.forEach((id, entry) -> {
+                long pending = entry.state.get().pending();
+                if (pending != 0) {
+                    snapshot.put(id, pending);
+                }
+            });
+            if (snapshot.isEmpty()) {
+                retireIdle();
+                return;
+            }
+            journal.force(false);
+            journal.close();
+            completedSegments = segments();
+            completedSegment = segmentNumber;
+            openSegment();
+        } finally {
+            journalLock.writeLock().unlock();
+        }
+
+        // 2. Một transaction: UPDATE theo lô, checkpoint, đọc lại số lượng và cập nhật thống kê / cache
+        List<Map.Entry<Long, Long>> updates = new ArrayList<>(snapshot.entrySet());
+        List<StockLevel> levels = transactionTemplate.execute(status -> {
+            Set<Long> rejected = apply(updates);
+            saveCheckpoint(completedSegment);
+            List<StockLevel> flushed = productRepository.findStockLevels(snapshot.keySet());
+            for (StockLevel level : flushed) {
+                if (rejected.contains(level.id())) {
+                    changeTracker.stockRejected(level);
+                } else {
+                    changeTracker.stockAdjusted(level, snapshot.get(level.id()).intValue());
+                }
+            }
+            return flushed;
+        });
+
+        // 3. Đã commit: trừ delta đã ghi (hoặc bị từ chối) khỏi bộ đệm, đồng bộ số lượng với
+        // database, xóa segment cũ (nếu dừng trước bước này, checkpoint ngăn áp dụng lại)
+        Map<Long, Integer> quantities = new HashMap<>();
+        for (StockLevel level : levels) {
+            quantities.put(level.id(), level.quantity() != null ? level.quantity() : 0);
+        }
+        snapshot.forEach((id, pending) -> {
+            Entry entry = entries.get(id);
+            if (entry != null) {
+                entry.flushed(pending, quantities.get(id));
+            }
+        });
+        retireIdle();
+        for (Path segment : completedSegments) {
+            Files.deleteIfExists(segment);
+        }
+    }
+
+    /**
+     * Chạy UPDATE theo lô trong transaction hiện tại. Trả về id của các dòng không được cập nhật
+     * (sản phẩm đã bị xóa hoặc số lượng sẽ âm); các delta này bị bỏ và được báo qua log / metric,
+     * người gọi phát cảnh báo cho sản phẩm còn tồn tại.
+     */
+    private Set<Long> apply(List<Map.Entry<Long, Long>> updates) {
+        if (updates.isEmpty()) {
+            return Set.of();
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        int[][] counts = jdbcTemplate.batchUpdate(UPDATE_SQL, updates, updates.size(), (ps, update) -> {
+            ps.setLong(1, update.getValue());
+            ps.setTimestamp(2, now);
+            ps.setLong(3, update.getKey());
+            ps.setLong(4, update.getValue());
+        });
+        Set<Long> rejected = new HashSet<>();
+        int index = 0;
+        for (int[] batch : counts) {
+            for (int count : batch) {
+                if (count == 0) {
+                    Map.Entry<Long, Long> update = updates.get(index);
+                    rejected.add(update.getKey());
+                    rejectedDeltas.increment();
+                    log.error("Stock delta {} for product {} rejected: product deleted or quantity would be negative",
+                            update.getValue(), update.getKey());
+                }
+                index++;
+            }
+        }
+        return rejected;
+    }
+
+    private void createCheckpointTable() {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + CHECKPOINT_TABLE
+                + " (id INT NOT NULL PRIMARY KEY, last_segment BIGINT NOT NULL)");
+        Integer rows = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + CHECKPOINT_TABLE, Integer.class);
+        if (rows == null || rows == 0) {
+            jdbcTemplate.update("INSERT INTO " + CHECKPOINT_TABLE + " (id, last_segment) VALUES (1, 0)");
+        }
+    }
+
+    private long readCheckpoint() {
+        Long last = jdbcTemplate.queryForObject(
+                "SELECT last_segment FROM " + CHECKPOINT_TABLE + " WHERE id = 1", Long.class);
+        return last != null ? last : 0;
+    }
+
+    // Chạy trong transaction của UPDATE: checkpoint và delta được commit cùng nhau
+    private void saveCheckpoint(long segment) {
+        jdbcTemplate.update("UPDATE " + CHECKPOINT_TABLE + " SET last_segment = ? WHERE id = 1 AND last_segment < ?",
+                segment, segment);
+    }
+
+    // Gỡ các entry không còn delta chờ; lần truy cập sau sẽ nạp lại số lượng từ database
+    private void retireIdle() {
+        entries.forEach((id, entry) -> {
+            if (entry.retire()) {
+                entries.remove(id, entry);
+            }
+        });
+    }
+
+    private void append(Long id, int delta) {
+        ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE).putLong(id).putInt(delta).flip();
+        try {
+            while (record.hasRemaining()) {
+                journal.write(record);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write stock journal", e);
+        }
+    }
+
+    private void openSegment() throws IOException {
+        segmentNumber++;
+        Path segment = journalDir.resolve(SEGMENT_PREFIX + String.format("%019d", segmentNumber) + SEGMENT_SUFFIX);
+        journal = FileChannel.open(segment, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+    }
+
+    private static long segmentNumberOf(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    // Các segment theo thứ tự tạo (tên có số thứ tự cố định độ dài)
+    private List<Path> segments() throws IOException {
+        if (!Files.isDirectory(journalDir)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(journalDir)) {
+            return files.filter(path -> {
+                String name = path.getFileName().toString();
+                return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+            }).sorted().toList();
+        }
+    }
+
+    /**
+     * Cộng dồn các segment còn lại (delta đã trả lời client nhưng chưa được flush) và ghi vào
+     * database. Segment có số thứ tự <= checkpoint đã được áp dụng nên chỉ bị xóa. Bản ghi
+     * cuối bị cắt dở (process dừng giữa lúc ghi) được bỏ qua.
+     */
+    void replay() throws IOException {
+        List<Path> segments = segments();
+        if (segments.isEmpty()) {
+            return;
+        }
+        long checkpoint = readCheckpoint();
+        long lastSegment = checkpoint;
+        Map<Long, Long> deltas = new HashMap<>();
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_SIZE * 4096);
+        for (Path segment : segments) {
+            long number = segmentNumberOf(segment);
+            if (number <= checkpoint) {
+                continue;
+            }
+            lastSegment = Math.max(lastSegment, number);
+            try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+                while (channel.read(buffer) > 0 || buffer.position() > 0) {
+                    buffer.flip();
+                    while (buffer.remaining() >= RECORD_SIZE) {
+                        deltas.merge(buffer.getLong(), (long) buffer.getInt(), Long::sum);
+                    }
+                    boolean partial = buffer.hasRemaining();
+                    buffer.compact();
+                    if (partial && channel.position() == channel.size()) {
+                        break;
+                    }
+                }
+            }
+            buffer.clear();
+        }
+        deltas.values().removeIf(delta -> delta == 0);
+
+        List<Map.Entry<Long, Long>> updates = new ArrayList<>(deltas.entrySet());
+        long replayedSegment = lastSegment;
+        transactionTemplate.executeWithoutResult(status -> {
+            Set<Long> rejected = apply(updates);
+            saveCheckpoint(replayedSegment);
+            if (!rejected.isEmpty()) {
+                productRepository.findStockLevels(rejected).forEach(changeTracker::stockRejected);
+            }
+        });
+        for (Path segment : segments) {
+            Files.delete(segment);
+        }
+        // Thống kê trong bộ nhớ được nạp sau khi khởi động xong nên đã gồm các delta này
+        log.info("Replayed stock journal: {} segment(s), {} product(s)", segments.size(), updates.size());
+    }
+
+    @PreDestroy
+    void shutdown() throws IOException {
+        if (flusher == null) {
+            return;
+        }
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            flush();
+        } catch (Exception e) {
+            // Journal vẫn còn, sẽ được áp dụng ở lần khởi động sau
+            log.error("Final stock flush failed, journal kept for replay", e);
+        }
+        journal.close();
+    }
+
+    /**
+     * flushed: số lượng đã có trong database; pending: tổng delta chưa ghi.
+     * retired: entry đã bị gỡ khỏi bộ đệm, người gọi phải nạp lại.
+     */
+    private record State(long flushed, long pending, boolean retired) {
+
+        long available() {
+            return flushed + pending;
+        }
+    }
+
+    private static final class Entry {
+
+        static final long RETIRED = Long.MIN_VALUE;
+
+        final String category;
+        final BigDecimal price;
+        final AtomicReference<State> state;
+
+        Entry(String category, BigDecimal price, int quantity) {
+            this.category = category;
+            this.price = price;
+            this.state = new AtomicReference<>(new State(quantity, 0, false));
+        }
+
+        // CAS: chỉ nhận delta nếu số lượng không âm; trả về số lượng mới hoặc RETIRED
+        long add(Long id, int delta) {
+            while (true) {
+                State current = state.get();
+                if (current.retired()) {
+                    return RETIRED;
+                }
+                long available = current.available() + delta;
+                if (available < 0) {
+                    throw new InsufficientStockException(id, delta, (int) current.available());
+                }
+                if (available > Integer.MAX_VALUE) {
+                    throw new IllegalArgumentException("Quantity would exceed " + Integer.MAX_VALUE);
+                }
+                if (state.compareAndSet(current, new State(current.flushed(), current.pending() + delta, false))) {
+                    return available;
+                }
+            }
+        }
+
+        void undo(int delta) {
+            state.updateAndGet(current -> new State(current.flushed(), current.pending() - delta, current.retired()));
+        }
+
+        // Sau khi commit: bỏ phần delta đã ghi, lấy số lượng trong database làm mốc mới
+        void flushed(long written, Integer databaseQuantity) {
+            state.updateAndGet(current -> databaseQuantity == null
+                    ? new State(current.flushed() + written, current.pending() - written, current.retired())
+                    : new State(databaseQuantity, current.pending() - written, current.retired()));
+        }
+
+        // Ghi tuyệt đối: quantity (null = sản phẩm đã bị xóa) thay cho mốc cũ và mọi delta đang chờ;
+        // trả về tổng delta bị bỏ
+        long reset(Integer quantity) {
+            State previous = state.getAndUpdate(current -> current.retired() ? current
+                    : new State(quantity != null ? quantity : 0, 0, quantity == null));
+            return previous.retired() ? 0 : previous.pending();
+        }
+
+        boolean retire() {
+            State current = state.get();
+            return current.pending() == 0 && !current.retired()
+                    && state.compareAndSet(current, new State(current.flushed(), 0, true));
+        }
+
+        StockLevel level(Long id, long available) {
+            return new StockLevel(id, category, price, (int) available);
+        }
+    }
+}
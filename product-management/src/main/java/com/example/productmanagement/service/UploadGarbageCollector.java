@@ -0,0 +1,116 @@
+package com.example.productmanagement.service;
+
+import com.example.productmanagement.repository.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Dọn các file upload (content-addressed) không còn sản phẩm nào tham chiếu.
+ * Số tham chiếu của một file là số sản phẩm có imagePath trỏ tới nó, được kiểm tra
+ * theo lô bằng một truy vấn IN. File mới hơn grace period được bỏ qua vì có thể vừa
+ * upload mà sản phẩm chưa kịp lưu; thời gian sửa được kiểm tra lại dưới khóa nội dung ngay
+ * trước khi xóa, vì upload trùng nội dung trong lúc quét sẽ làm mới nó.
+ */
+@Service
+public class UploadGarbageCollector {
+
+    private static final Logger log = LoggerFactory.getLogger(UploadGarbageCollector.class);
+
+    private static final int BATCH_SIZE = 500;
+
+    private final FileStorageService fileStorageService;
+    private final ProductRepository productRepository;
+    private final Duration gracePeriod;
+
+    public UploadGarbageCollector(FileStorageService fileStorageService, ProductRepository productRepository,
+            @Value("${uploads.gc.grace-period:PT1H}") Duration gracePeriod) {
+        this.fileStorageService = fileStorageService;
+        this.productRepository = productRepository;
+        this.gracePeriod = gracePeriod;
+    }
+
+    @Scheduled(fixedDelayString = "${uploads.gc.interval:PT1H}", initialDelayString = "${uploads.gc.interval:PT1H}")
+    public void collect() {
+        Instant cutoff = Instant.now().minus(gracePeriod);
+        List<Path> candidates = new ArrayList<>();
+        int deleted = 0;
+        try (Stream<Path> files = Files.walk(fileStorageService.getStorageLocation(), 3)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (isContentFile(file) && Files.getLastModifiedTime(file).toInstant().isBefore(cutoff)) {
+                    candidates.add(file);
+                    if (candidates.size() >= BATCH_SIZE) {
+                        deleted += deleteUnreferenced(candidates, cutoff);
+                        candidates.clear();
+                    }
+                }
+            }
+            deleted += deleteUnreferenced(candidates, cutoff);
+        } catch (IOException e) {
+            log.warn("Upload garbage collection failed", e);
+        }
+        if (deleted > 0) {
+            log.info("Upload garbage collection removed {} unreferenced files", deleted);
+        }
+    }
+
+    private boolean isContentFile(Path file) {
+        // Chỉ quản lý file trong thư mục phân mảnh ab/cd/; file cũ ở gốc uploads/ được giữ nguyên
+        return Files.isRegularFile(file)
+                && fileStorageService.getStorageLocation().relativize(file).getNameCount() == 3
+                && FileStorageService.CONTENT_FILE.matcher(file.getFileName().toString()).matches();
+    }
+
+    private int deleteUnreferenced(List<Path> files, Instant cutoff) throws IOException {
+        if (files.isEmpty()) {
+            return 0;
+        }
+        List<String> names = files.stream().map(fileStorageService::relativeName).toList();
+        Set<String> referenced = new HashSet<>(productRepository.findReferencedImagePaths(names));
+        int deleted = 0;
+        for (Path file : files) {
+            if (referenced.contains(fileStorageService.relativeName(file))) {
+                continue;
+            }
+            ReentrantLock lock = fileStorageService.contentLock(file);
+            lock.lock();
+            try {
+                // Upload trùng nội dung sau lần quét đã làm mới mtime: tên file có thể sắp được lưu vào sản phẩm
+                if (Files.exists(file) && Files.getLastModifiedTime(file).toInstant().isBefore(cutoff)) {
+                    deleteWithVariants(file);
+                    deleted++;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        return deleted;
+    }
+
+    // Xóa file gốc và các bản thu nhỏ <hash>_<variant>.<ext> nằm cùng thư mục
+    private void deleteWithVariants(Path file) throws IOException {
+        String name = file.getFileName().toString();
+        String hash = name.contains(".") ? name.substring(0, name.indexOf('.')) : name;
+        try (DirectoryStream<Path> variants = Files.newDirectoryStream(file.getParent(), hash + "_*")) {
+            for (Path variant : variants) {
+                Files.deleteIfExists(variant);
+            }
+        }
+        Files.deleteIfExists(file);
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.productmanagement.service;
+
+/**
+ * File upload bị từ chối khi đang nhận dữ liệu (sai định dạng, rỗng hoặc vượt giới hạn kích thước).
+ */
+public class UploadRejectedException extends IllegalArgumentException {
+
+    private final boolean tooLarge;
+
+    public UploadRejectedException(String message, boolean tooLarge) {
+        super(message);
+        this.tooLarge = tooLarge;
+    }
+
+    public boolean isTooLarge() {
+        return tooLarge;
+    }
+}
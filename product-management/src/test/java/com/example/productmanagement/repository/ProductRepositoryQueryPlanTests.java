@@ -0,0 +1,186 @@
+package com.example.productmanagement.repository;
+
+import com.example.productmanagement.dto.ProductSummary;
+import com.example.productmanagement.entity.Product;
+import jakarta.persistence.EntityManager;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Kiểm tra câu SQL do ProductSpecifications sinh ra: chỉ chứa các điều kiện có giá trị,
+ * trả về đúng các dòng thỏa bộ lọc và được H2 thực thi bằng index (EXPLAIN không có tableScan),
+ * cả với findAll(spec) lẫn đường phân trang projection findSummaries(spec, pageable).
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                + "com.example.productmanagement.repository.ProductRepositoryQueryPlanTests$CapturingInspector"
+})
+class ProductRepositoryQueryPlanTests {
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private final List<Product> seeded = new ArrayList<>();
+
+    @BeforeEach
+    void seed() {
+        String[] categories = {"Electronics", "Furniture", "Clothing"};
+        for (int i = 0; i < 300; i++) {
+            seeded.add(productRepository.save(new Product(String.format("P%04d", i), "Product " + i,
+                    BigDecimal.valueOf(10 + i), i % 50, categories[i % categories.length], "Description " + i)));
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void categoryFilterUsesIndex() throws SQLException {
+        assertIndexScan(null, "Electronics", null, null);
+    }
+
+    @Test
+    void minPriceFilterUsesIndex() throws SQLException {
+        assertIndexScan(null, null, new BigDecimal("100"), null);
+    }
+
+    @Test
+    void maxPriceFilterUsesIndex() throws SQLException {
+        assertIndexScan(null, null, null, new BigDecimal("50"));
+    }
+
+    @Test
+    void priceRangeFilterUsesIndex() throws SQLException {
+        assertIndexScan(null, null, new BigDecimal("100"), new BigDecimal("120"));
+    }
+
+    @Test
+    void categoryAndPriceRangeFilterUsesIndex() throws SQLException {
+        assertIndexScan(null, "Furniture", new BigDecimal("100"), new BigDecimal("200"));
+    }
+
+    @Test
+    void nameAndCategoryFilterUsesCategoryIndex() throws SQLException {
+        assertIndexScan("Product 1", "Clothing", null, null);
+    }
+
+    @Test
+    void onlySuppliedPredicatesAreEmitted() {
+        productRepository.findAll(ProductSpecifications.matching(null, "Electronics", null, null));
+
+        String where = CapturingInspector.lastSql.toLowerCase();
+        where = where.substring(where.indexOf(" where "));
+        assertThat(where).contains("category");
+        assertThat(where).doesNotContain("price").doesNotContain("name").doesNotContain(" is null");
+    }
+
+    private void assertIndexScan(String name, String category, BigDecimal minPrice, BigDecimal maxPrice)
+            throws SQLException {
+        Specification<Product> spec = ProductSpecifications.matching(name, category, minPrice, maxPrice);
+        // Kết quả mong đợi tính trực tiếp từ dữ liệu seed, xếp theo giá (giá là duy nhất)
+        List<String> expected = seeded.stream()
+                .filter(product -> name == null || product.getName().contains(name))
+                .filter(product -> category == null || product.getCategory().equals(category))
+                .filter(product -> minPrice == null || product.getPrice().compareTo(minPrice) >= 0)
+                .filter(product -> maxPrice == null || product.getPrice().compareTo(maxPrice) <= 0)
+                .sorted(Comparator.comparing(Product::getPrice))
+                .map(Product::getProductCode)
+                .toList();
+        assertThat(expected).hasSizeGreaterThan(1);
+
+        List<Product> result = productRepository.findAll(spec);
+        String sql = CapturingInspector.lastSql;
+        assertThat(result).extracting(Product::getProductCode).containsExactlyInAnyOrderElementsOf(expected);
+
+        // Tham số được bind theo đúng thứ tự điều kiện trong ProductSpecifications.matching
+        List<Object> parameters = new ArrayList<>();
+        if (name != null) {
+            parameters.add("%" + name + "%");
+        }
+        if (category != null) {
+            parameters.add(category);
+        }
+        if (minPrice != null) {
+            parameters.add(minPrice);
+        }
+        if (maxPrice != null) {
+            parameters.add(maxPrice);
+        }
+
+        assertUsesIndex(explain(sql, parameters));
+
+        // Trang 1 dòng theo giá: nội dung là dòng rẻ nhất, tổng số lấy từ COUNT(*) với cùng điều kiện
+        CapturingInspector.statements.clear();
+        Page<ProductSummary> page = productRepository.findSummaries(spec, PageRequest.of(0, 1, Sort.by("price")));
+        assertThat(page.getTotalElements()).isEqualTo(expected.size());
+        assertThat(page.getContent()).extracting(ProductSummary::getProductCode).containsExactly(expected.get(0));
+
+        String countSql = CapturingInspector.statements.stream()
+                .filter(statement -> statement.toLowerCase().contains("count("))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("findSummaries did not run a count query"));
+        assertUsesIndex(explain(countSql, parameters));
+    }
+
+    private static void assertUsesIndex(String plan) {
+        assertThat(plan.toLowerCase()).contains("idx_products_").doesNotContain("tablescan");
+    }
+
+    private String explain(String sql, List<Object> parameters) throws SQLException {
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try (PreparedStatement statement = connection.prepareStatement("EXPLAIN " + sql)) {
+            for (int i = 0; i < parameters.size(); i++) {
+                statement.setObject(i + 1, parameters.get(i));
+            }
+            try (ResultSet resultSet = statement.executeQuery()) {
+                StringBuilder plan = new StringBuilder();
+                while (resultSet.next()) {
+                    plan.append(resultSet.getString(1)).append('\n');
+                }
+                return plan.toString();
+            }
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+
+    public static class CapturingInspector implements StatementInspector {
+
+        static volatile String lastSql;
+        static final List<String> statements = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            lastSql = sql;
+            statements.add(sql);
+            return sql;
+        }
+    }
+}
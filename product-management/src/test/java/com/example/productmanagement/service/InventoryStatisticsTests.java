@@ -0,0 +1,40 @@
+package com.example.productmanagement.service;
+
+import com.example.productmanagement.dto.CategoryStatistics;
+import com.example.productmanagement.dto.DashboardStatistics;
+import com.example.productmanagement.repository.ProductRepository;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Kiểm tra thay đổi được ghi nhận trong lúc đối soát đang truy vấn database không bị mất khi thay map.
+ */
+class InventoryStatisticsTests {
+
+    private final ProductRepository productRepository = mock(ProductRepository.class);
+    private final InventoryStatistics statistics = new InventoryStatistics(productRepository);
+
+    @Test
+    void changesDuringReconcileAreReplayedOntoFreshCounters() {
+        when(productRepository.aggregateByCategory())
+                .thenReturn(List.of(new CategoryStatistics("Tools", 1L, new BigDecimal("50.00"), new BigDecimal("10.00"))))
+                .thenAnswer(invocation -> {
+                    // Sản phẩm mới được commit sau khi truy vấn đối soát đã đọc snapshot
+                    statistics.recordChange(null, InventoryStatistics.ProductState.of("Tools", new BigDecimal("20.00"), 2));
+                    return List.of(new CategoryStatistics("Tools", 1L, new BigDecimal("50.00"), new BigDecimal("10.00")));
+                });
+        statistics.reconcile();
+
+        statistics.reconcile();
+
+        DashboardStatistics snapshot = statistics.snapshot();
+        assertThat(snapshot.totalCount()).isEqualTo(2);
+        assertThat(snapshot.totalValue()).isEqualByComparingTo("90.00");
+    }
+}
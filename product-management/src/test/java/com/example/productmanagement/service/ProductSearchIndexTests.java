@@ -0,0 +1,50 @@
+package com.example.productmanagement.service;
+
+import com.example.productmanagement.entity.Product;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Kiểm tra thay đổi đến trong lúc dựng index không bị dòng đọc từ snapshot cũ ghi đè.
+ */
+class ProductSearchIndexTests {
+
+    private final ProductService productService = mock(ProductService.class);
+    private final ProductSearchIndex index = new ProductSearchIndex(productService);
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void changesDuringBuildAreReplayedAfterStaleRows() {
+        Product stale = product(1L, "Old Laptop");
+        Product removed = product(2L, "Gaming Mouse");
+        doAnswer(invocation -> {
+            Consumer<Product> action = invocation.getArgument(0);
+            // Commit xảy ra sau khi câu truy vấn dựng index đã đọc snapshot
+            index.index(ProductSearchIndex.Document.of(product(1L, "New Tablet")));
+            index.remove(2L);
+            action.accept(stale);
+            action.accept(removed);
+            return null;
+        }).when(productService).forEachProduct(any(Consumer.class));
+
+        index.build();
+
+        assertThat(index.isReady()).isTrue();
+        assertThat(index.search("tablet")).containsExactly(1L);
+        assertThat(index.search("laptop")).isEmpty();
+        assertThat(index.search("mouse")).isEmpty();
+    }
+
+    private static Product product(Long id, String name) {
+        Product product = new Product("P" + id, name, new BigDecimal("10.00"), 5, "Electronics", null);
+        product.setId(id);
+        return product;
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.productmanagement.service;
+
+import com.example.productmanagement.controller.ProductRestController;
+import com.example.productmanagement.dto.StockAdjustment;
+import com.example.productmanagement.dto.StockLevel;
+import com.example.productmanagement.entity.Product;
+import com.example.productmanagement.repository.ProductRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Kiểm tra điều chỉnh tồn kho nguyên tử (UPDATE có điều kiện) trên H2: nhiều thread cùng trừ
+ * không bán vượt, và cách POST /api/products/{id}/stock ánh xạ lỗi (409, 404, 400).
+ * Không chạy trong transaction của test để các thread thấy dữ liệu đã commit.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ProductStockAdjustmentTests {
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+    private ProductServiceImpl productService;
+    private ProductRestController controller;
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        productRepository.deleteAll();
+        // Bộ đệm write-behind (mock) tắt: adjustStock đi thẳng lệnh UPDATE
+        productService = new ProductServiceImpl(productRepository, entityManager, mock(ProductSearchIndex.class),
+                mock(ProductChangeTracker.class), mock(InventoryStatistics.class), mock(ReferenceDataCache.class),
+                mock(StockWriteBehindBuffer.class), mock(LowStockMonitor.class), mock(ProductCache.class));
+        // Service được tạo trực tiếp (không có proxy @Transactional): controller gọi adjustStock trong transaction
+        ProductService transactional = mock(ProductService.class);
+        when(transactional.adjustStock(anyLong(), anyInt())).thenAnswer(invocation -> transactionTemplate.execute(
+                status -> productService.adjustStock(invocation.getArgument(0), invocation.getArgument(1))));
+        controller = new ProductRestController(transactional, null, null, null, null);
+    }
+
+    @Test
+    void concurrentDecrementsNeverOversell() throws InterruptedException {
+        Long id = product(50);
+
+        AtomicInteger sold = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        CountDownLatch go = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 200; i++) {
+            pool.execute(() -> {
+                try {
+                    go.await();
+                    transactionTemplate.executeWithoutResult(status -> productService.adjustStock(id, -1));
+                    sold.incrementAndGet();
+                } catch (InsufficientStockException e) {
+                    rejected.incrementAndGet();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        go.countDown();
+        pool.shutdown();
+        assertThat(pool.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(sold.get()).isEqualTo(50);
+        assertThat(rejected.get()).isEqualTo(150);
+        assertThat(productRepository.findStockLevel(id)).map(StockLevel::quantity).contains(0);
+    }
+
+    @Test
+    void adjustmentReturnsNewLevel() {
+        Long id = product(5);
+
+        ResponseEntity<StockLevel> response = controller.adjustStock(id, new StockAdjustment(3));
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).isNotNull();
+        assertThat(response.getBody().quantity()).isEqualTo(8);
+    }
+
+    @Test
+    void oversellMapsToConflictWithoutWriting() {
+        Long id = product(2);
+
+        assertThatThrownBy(() -> controller.adjustStock(id, new StockAdjustment(-3)))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.CONFLICT));
+        assertThat(productRepository.findStockLevel(id)).map(StockLevel::quantity).contains(2);
+    }
+
+    @Test
+    void unknownProductMapsToNotFound() {
+        ResponseEntity<StockLevel> response = controller.adjustStock(Long.MAX_VALUE, new StockAdjustment(-1));
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
+    @Test
+    void oversizedDeltaMapsToBadRequest() {
+        Long id = product(5);
+
+        assertThatThrownBy(() -> controller.adjustStock(id, new StockAdjustment(Integer.MAX_VALUE)))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST));
+        assertThat(productRepository.findStockLevel(id)).map(StockLevel::quantity).contains(5);
+    }
+
+    private Long product(int quantity) {
+        return productRepository.save(new Product("P001", "Widget", BigDecimal.TEN, quantity, "Tools", null))
+                .getId();
+    }
+}
@@ -0,0 +1,252 @@
+package com.example.productmanagement.service;
+
+import com.example.productmanagement.dto.StockLevel;
+import com.example.productmanagement.entity.Product;
+import com.example.productmanagement.repository.ProductRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Kiểm tra bộ đệm write-behind trên H2: kiểm tra bán vượt bằng CAS khi nhiều thread cùng trừ
+ * tồn kho, replay journal (bản ghi cuối bị cắt, dừng giữa commit và xóa segment), thử lại khi
+ * flush lỗi, ghi tuyệt đối thay cho delta đang chờ và điều kiện quantity + delta >= 0 khi có
+ * thao tác ghi ngoài ứng dụng xen vào.
+ * Không chạy trong transaction của test vì flush tự mở transaction và commit.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class StockWriteBehindBufferTests {
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @TempDir
+    Path journalDir;
+
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private final ProductChangeTracker changeTracker = mock(ProductChangeTracker.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<StockWriteBehindBuffer> started = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        productRepository.deleteAll();
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + StockWriteBehindBuffer.CHECKPOINT_TABLE);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        for (StockWriteBehindBuffer buffer : started) {
+            buffer.shutdown();
+        }
+    }
+
+    @Test
+    void concurrentDecrementsNeverOversell() throws Exception {
+        Long id = product(100);
+        StockWriteBehindBuffer buffer = buffer(true);
+
+        AtomicInteger sold = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        CountDownLatch go = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(16);
+        for (int i = 0; i < 400; i++) {
+            pool.execute(() -> {
+                try {
+                    go.await();
+                    buffer.adjust(id, -1);
+                    sold.incrementAndGet();
+                } catch (InsufficientStockException e) {
+                    rejected.incrementAndGet();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        go.countDown();
+        pool.shutdown();
+        assertThat(pool.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(sold.get()).isEqualTo(100);
+        assertThat(rejected.get()).isEqualTo(300);
+        buffer.flush();
+        assertThat(quantityOf(id)).isZero();
+    }
+
+    @Test
+    void replayIgnoresTruncatedLastRecord() throws IOException {
+        Long id = product(10);
+        ByteBuffer records = ByteBuffer.allocate(2 * (Long.BYTES + Integer.BYTES) + 5)
+                .putLong(id).putInt(5)
+                .putLong(id).putInt(-2)
+                .put(new byte[5]); // bản ghi thứ ba bị cắt dở
+        Files.write(journalDir.resolve(String.format("stock-%019d.journal", 1)), records.array());
+
+        buffer(false);
+
+        assertThat(quantityOf(id)).isEqualTo(13);
+        assertThat(journalFiles()).isEmpty();
+    }
+
+    @Test
+    void failedFlushIsRetried() throws IOException {
+        Long id = product(10);
+        doThrow(new IllegalStateException("boom")).doNothing().when(changeTracker).stockAdjusted(any(), anyInt());
+        StockWriteBehindBuffer buffer = buffer(true);
+
+        buffer.adjust(id, -3);
+        assertThatThrownBy(buffer::flush).isInstanceOf(IllegalStateException.class);
+        assertThat(quantityOf(id)).isEqualTo(10);
+        assertThat(buffer.level(id)).map(StockLevel::quantity).contains(7);
+
+        buffer.adjust(id, -1);
+        buffer.flush();
+        assertThat(quantityOf(id)).isEqualTo(6);
+        assertThat(buffer.level(id)).map(StockLevel::quantity).contains(6);
+    }
+
+    @Test
+    void crashAfterCommitDoesNotReapplyJournal() throws IOException {
+        Long id = product(10);
+        StockWriteBehindBuffer first = buffer(true);
+        first.adjust(id, -4);
+
+        // Giả lập process dừng sau commit nhưng trước khi xóa segment: chép lại segment đã flush
+        Map<Path, byte[]> segments = new HashMap<>();
+        for (Path segment : journalFiles()) {
+            segments.put(segment, Files.readAllBytes(segment));
+        }
+        first.flush();
+        assertThat(quantityOf(id)).isEqualTo(6);
+        for (Map.Entry<Path, byte[]> segment : segments.entrySet()) {
+            Files.write(segment.getKey(), segment.getValue());
+        }
+
+        buffer(false);
+
+        assertThat(quantityOf(id)).isEqualTo(6);
+        assertThat(journalFiles()).doesNotContainAnyElementsOf(segments.keySet());
+    }
+
+    @Test
+    void flushRejectsDeltaThatWouldMakeQuantityNegative() throws IOException {
+        Long id = product(5);
+        StockWriteBehindBuffer buffer = buffer(true);
+        buffer.adjust(id, -4);
+
+        // SQL trực tiếp (không qua ProductChangeTracker) giảm số lượng giữa hai lần flush
+        jdbcTemplate.update("UPDATE products SET quantity = 2 WHERE id = ?", id);
+        buffer.flush();
+
+        assertThat(quantityOf(id)).isEqualTo(2);
+        assertThat(meterRegistry.counter("inventory.write_behind.rejected").count()).isEqualTo(1);
+        verify(changeTracker).stockRejected(argThat(level -> level.id().equals(id) && level.quantity() == 2));
+        assertThat(buffer.level(id)).map(StockLevel::quantity).contains(2);
+    }
+
+    @Test
+    void absoluteWriteSupersedesPendingDeltasAndBecomesTheNewBase() throws IOException {
+        Long id = product(5);
+        StockWriteBehindBuffer buffer = buffer(true);
+        buffer.adjust(id, -4);
+
+        // Form / PUT lưu số lượng 2; ProductChangeTracker gọi overwritten sau khi commit
+        jdbcTemplate.update("UPDATE products SET quantity = 2 WHERE id = ?", id);
+        buffer.overwritten(id);
+
+        assertThat(buffer.level(id)).map(StockLevel::quantity).contains(2);
+        assertThatThrownBy(() -> buffer.adjust(id, -3)).isInstanceOf(InsufficientStockException.class);
+        buffer.adjust(id, -2);
+        buffer.flush();
+
+        assertThat(quantityOf(id)).isZero();
+        assertThat(meterRegistry.counter("inventory.write_behind.rejected").count()).isZero();
+        verify(changeTracker, never()).stockRejected(any());
+    }
+
+    @Test
+    void readsSeePendingDeltasUntilFlushed() throws IOException {
+        Long id = product(10);
+        StockWriteBehindBuffer buffer = buffer(true);
+        buffer.adjust(id, -3);
+
+        assertThat(buffer.quantity(id, quantityOf(id))).isEqualTo(7);
+        buffer.flush();
+        assertThat(buffer.quantity(id, quantityOf(id))).isEqualTo(7);
+        assertThat(quantityOf(id)).isEqualTo(7);
+    }
+
+    private StockWriteBehindBuffer buffer(boolean enabled) throws IOException {
+        StockWriteBehindBuffer buffer = new StockWriteBehindBuffer(enabled, Duration.ofHours(1), Integer.MAX_VALUE,
+                journalDir.toString(), productRepository, jdbcTemplate, transactionTemplate, changeTracker,
+                meterRegistry);
+        buffer.start();
+        if (enabled) {
+            started.add(buffer);
+        }
+        return buffer;
+    }
+
+    private Long product(int quantity) {
+        return productRepository.save(new Product("P001", "Widget", BigDecimal.TEN, quantity, "Tools", null))
+                .getId();
+    }
+
+    private int quantityOf(Long id) {
+        return jdbcTemplate.queryForObject("SELECT quantity FROM products WHERE id = ?", Integer.class, id);
+    }
+
+    private List<Path> journalFiles() throws IOException {
+        try (Stream<Path> files = Files.list(journalDir)) {
+            return files.filter(path -> path.getFileName().toString().endsWith(".journal")).toList();
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.productmanagement.service;
+
+import com.example.productmanagement.repository.ProductRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Kiểm tra dọn file upload: file cũ không được tham chiếu bị xóa (cùng bản thu nhỏ), còn file
+ * vừa được một upload trùng nội dung dùng lại giữa lúc quét và lúc xóa thì được giữ.
+ */
+class UploadGarbageCollectorTests {
+
+    // PNG nhỏ nhất đủ để nhận diện định dạng theo magic bytes
+    private static final byte[] IMAGE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n', 0, 0, 0, 13, 'I', 'H'};
+
+    @TempDir
+    Path uploadDir;
+
+    private final ProductRepository productRepository = mock(ProductRepository.class);
+    private FileStorageService fileStorageService;
+    private UploadGarbageCollector collector;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        fileStorageService = new FileStorageService(DataSize.ofMegabytes(1), new String[] {"png"},
+                uploadDir.toString(), new SimpleMeterRegistry());
+        collector = new UploadGarbageCollector(fileStorageService, productRepository, Duration.ofHours(1));
+    }
+
+    @Test
+    void deletesOldUnreferencedFileWithVariants() throws IOException {
+        Path file = storeOldFile();
+        Path thumbnail = file.resolveSibling(file.getFileName().toString().replace(".png", "_thumb.png"));
+        Files.write(thumbnail, IMAGE);
+        when(productRepository.findReferencedImagePaths(anyCollection())).thenReturn(List.of());
+
+        collector.collect();
+
+        assertThat(file).doesNotExist();
+        assertThat(thumbnail).doesNotExist();
+    }
+
+    @Test
+    void keepsReferencedFile() throws IOException {
+        Path file = storeOldFile();
+        when(productRepository.findReferencedImagePaths(anyCollection()))
+                .thenReturn(List.of(fileStorageService.relativeName(file)));
+
+        collector.collect();
+
+        assertThat(file).exists();
+    }
+
+    @Test
+    void keepsFileReusedByUploadBetweenScanAndDelete() throws IOException {
+        Path file = storeOldFile();
+        // Truy vấn tham chiếu chạy sau khi quét thư mục và trước khi xóa: một upload trùng nội dung
+        // xảy ra đúng lúc này, sản phẩm của nó chưa được lưu nên file vẫn chưa được tham chiếu
+        when(productRepository.findReferencedImagePaths(anyCollection())).thenAnswer(invocation -> {
+            assertThat(fileStorageService.store(new ByteArrayInputStream(IMAGE)))
+                    .isEqualTo(fileStorageService.relativeName(file));
+            return List.of();
+        });
+
+        collector.collect();
+
+        assertThat(file).exists();
+    }
+
+    private Path storeOldFile() throws IOException {
+        Path file = fileStorageService.resolve(fileStorageService.store(new ByteArrayInputStream(IMAGE)));
+        Files.setLastModifiedTime(file, FileTime.from(Instant.now().minus(Duration.ofDays(1))));
+        return file;
+    }
+}